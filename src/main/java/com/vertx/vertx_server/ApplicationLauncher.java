@@ -1,36 +1,114 @@
 package com.vertx.vertx_server;
 
+import com.vertx.vertx_server.metrics.AppMetrics;
+import com.vertx.vertx_server.mongo.MongoIndexBootstrapper;
+import com.vertx.vertx_server.repository.EmbeddedStore;
+import com.vertx.vertx_server.tracing.AppTracing;
 import io.vertx.config.ConfigRetriever;
 import io.vertx.config.ConfigRetrieverOptions;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.MongoClient;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
 import static com.vertx.vertx_server.MainVerticle.getConfigRetrieverOptions;
+import static com.vertx.vertx_server.MainVerticle.getDeploymentOptions;
 
 public class ApplicationLauncher {
 
   private static final Logger LOG = LoggerFactory.getLogger(ApplicationLauncher.class);
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+  // resources the verticles write to, closed once they are undeployed
+  private static final List<Closeable> CLOSE_AFTER_VERTX = new CopyOnWriteArrayList<>();
+
   public static void main(String[] args) {
-    Vertx vertx = Vertx.vertx();
+    // the configuration decides how Vert.x itself is created, so it is read
+    // with a short-lived instance first
+    Vertx bootstrap = Vertx.vertx();
     ConfigRetrieverOptions options = getConfigRetrieverOptions();
-    ConfigRetriever configRetriever = ConfigRetriever.create(vertx, options);
-    configRetriever.getConfig(asyncResult -> {
-      if (asyncResult.succeeded()) {
-        JsonObject config = asyncResult.result();
+    ConfigRetriever configRetriever = ConfigRetriever.create(bootstrap, options);
+    configRetriever.getConfig()
+      .eventually(() -> bootstrap.close())
+      .compose(config -> createVertx(config).compose(vertx -> deploy(vertx, config)))
+      .onComplete(result -> {
+        if (result.succeeded()) {
+          LOG.info("Deployment successful.");
+        } else {
+          LOG.error("Deployment failed: " + result.cause().getMessage());
+        }
+      });
+  }
+
+  private static Future<String> deploy(Vertx vertx, JsonObject config) {
+    JsonObject storageConfig = config.getJsonObject("storage", new JsonObject());
+    String storage = storageConfig.getString("type", "mongo");
+    switch (storage) {
+      case "mongo":
         MongoClient mongoClient = MongoClient.createShared(vertx, config.getJsonObject("mongo"));
-        MainVerticle mainVerticle = new MainVerticle(vertx, mongoClient, config);
-
-        vertx.deployVerticle(mainVerticle, result -> {
-          if (result.succeeded()) {
-            LOG.info("Deployment successful.");
-          } else {
-            LOG.error("Deployment failed: " + result.cause().getMessage());
-          }
-        });
+        MongoIndexBootstrapper indexBootstrapper =
+          new MongoIndexBootstrapper(vertx, mongoClient, config.getJsonObject("indexes", new JsonObject()));
+        return indexBootstrapper.ensureIndexes()
+          .compose(indexes -> vertx.deployVerticle(() -> new MainVerticle(vertx, mongoClient, config), getDeploymentOptions(config)));
+      case "embedded":
+        return EmbeddedStore.open(vertx, storageConfig.getJsonObject("embedded", new JsonObject()))
+          .onSuccess(CLOSE_AFTER_VERTX::add)
+          .compose(store -> vertx.deployVerticle(() -> new MainVerticle(vertx, store, config), getDeploymentOptions(config)));
+      default:
+        return Future.failedFuture("Unknown storage type: " + storage);
+    }
+  }
+
+  private static Future<Vertx> createVertx(JsonObject config) {
+    VertxOptions vertxOptions = new VertxOptions()
+      .setMetricsOptions(AppMetrics.options(config.getJsonObject("metrics", new JsonObject())))
+      .setTracingOptions(AppTracing.options(config.getJsonObject("tracing", new JsonObject())))
+      .setPreferNativeTransport(config.getJsonObject("transport", new JsonObject()).getBoolean("native", false));
+    if (config.getJsonObject("cluster", new JsonObject()).getBoolean("enabled", false)) {
+      LOG.info("Joining the Vert.x cluster.");
+      return Vertx.clusteredVertx(vertxOptions).onSuccess(vertx -> {
+        logTransport(vertx);
+        closeOnShutdown(vertx);
+      });
+    }
+    Vertx vertx = Vertx.vertx(vertxOptions);
+    logTransport(vertx);
+    closeOnShutdown(vertx);
+    return Future.succeededFuture(vertx);
+  }
+
+  // undeploys the verticles, then closes what they wrote to, such as the embedded store with its last flush
+  private static void closeOnShutdown(Vertx vertx) {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        vertx.close().toCompletionStage().toCompletableFuture().get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        LOG.error("Vert.x did not close cleanly: " + e.getMessage());
+      }
+      for (Closeable resource : CLOSE_AFTER_VERTX) {
+        try {
+          resource.close();
+          LOG.info("Closed " + resource.getClass().getSimpleName() + ".");
+        } catch (IOException e) {
+          LOG.error("Could not close " + resource.getClass().getSimpleName() + ": " + e.getMessage());
+        }
       }
-    });
+    }, "vertx-shutdown"));
+  }
+
+  private static void logTransport(Vertx vertx) {
+    if (vertx.isNativeTransportEnabled()) {
+      LOG.info("Using the native transport.");
+    } else if (vertx.unavailableNativeTransportCause() != null) {
+      LOG.info("Using the JDK transport, the native one is unavailable: " + vertx.unavailableNativeTransportCause().getMessage());
+    }
   }
 }
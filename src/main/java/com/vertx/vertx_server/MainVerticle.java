@@ -1,14 +1,38 @@
 package com.vertx.vertx_server;
 
+import com.vertx.vertx_server.cache.ItemListCache;
+import com.vertx.vertx_server.cache.ItemListInvalidation;
+import com.vertx.vertx_server.cache.ItemListVersions;
+import com.vertx.vertx_server.cache.LoginFilter;
 import com.vertx.vertx_server.handler.ItemHandler;
 import com.vertx.vertx_server.handler.UserHandler;
+import com.vertx.vertx_server.http.CompressionThresholdHandler;
+import com.vertx.vertx_server.http.HttpServerTuning;
+import com.vertx.vertx_server.logging.AccessLogHandler;
+import com.vertx.vertx_server.metrics.EventLoopMonitor;
 import com.vertx.vertx_server.model.Item;
+import com.vertx.vertx_server.mongo.InsertCoalescer;
+import com.vertx.vertx_server.repository.EmbeddedStore;
+import com.vertx.vertx_server.repository.ItemRepository;
+import com.vertx.vertx_server.repository.MongoItemRepository;
+import com.vertx.vertx_server.repository.MongoUserRepository;
+import com.vertx.vertx_server.repository.UserRepository;
+import com.vertx.vertx_server.security.CachingJWTAuth;
+import com.vertx.vertx_server.security.CredentialHasher;
+import com.vertx.vertx_server.security.RateLimitHandler;
+import com.vertx.vertx_server.security.TokenBucketLimiter;
+import com.vertx.vertx_server.security.TracingJWTAuth;
+import com.vertx.vertx_server.tracing.AppTracing;
+import com.vertx.vertx_server.validation.RequestValidator;
 import io.vertx.config.ConfigRetriever;
 import io.vertx.config.ConfigRetrieverOptions;
 import io.vertx.config.ConfigStoreOptions;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
@@ -21,47 +45,155 @@ import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.JWTAuthHandler;
+import io.vertx.micrometer.PrometheusScrapingHandler;
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.Locale;
 import java.util.UUID;
+import java.util.function.Function;
 
 public class MainVerticle extends AbstractVerticle {
 
   private static final String ITEMS_ENDPOINT = "/items";
+  private static final int DEFAULT_INSTANCES = Runtime.getRuntime().availableProcessors();
+  private static final long DEFAULT_BODY_MAX_BYTES = 64 * 1024;
+  private static final long DEFAULT_CACHE_TTL_SECONDS = 30;
+  private static final String DEFAULT_METRICS_HOST = "localhost";
 
   private static final Logger LOG = LoggerFactory.getLogger(MainVerticle.class);
 
   private final Vertx vertx;
   private final JsonObject config;
   private final MongoClient mongoClient;
+  private final EmbeddedStore embeddedStore;
+  private LoginFilter loginFilter;
+  private MessageConsumer<String> loginFilterConsumer;
+  private MessageConsumer<String> itemListInvalidationConsumer;
+  private EventLoopMonitor eventLoopMonitor;
 
   public MainVerticle(Vertx vertx, MongoClient mongoClient, JsonObject config){
     this.vertx = vertx;
     this.mongoClient = mongoClient;
+    this.embeddedStore = null;
+    this.config = config;
+  }
+
+  /**
+   * Serves items and users from the embedded store instead of Mongo.
+   */
+  public MainVerticle(Vertx vertx, EmbeddedStore embeddedStore, JsonObject config){
+    this.vertx = vertx;
+    this.mongoClient = null;
+    this.embeddedStore = embeddedStore;
     this.config = config;
   }
 
   @Override
   public void start(Promise<Void> startPromise) {
+        JsonObject rateLimitConfig = config.getJsonObject("rate.limit", new JsonObject());
+        boolean rateLimited = rateLimitConfig.getBoolean("enabled", false);
+        String addressHeader = rateLimitConfig.getString("address.header");
+        if (rateLimited && addressHeader == null && !rateLimitConfig.getBoolean("key.by.peer", false)) {
+          startPromise.fail(new IllegalStateException("rate.limit needs address.header, or key.by.peer when clients "
+            + "connect directly: behind a proxy every client would share the bucket of the proxy"));
+          return;
+        }
 
+        eventLoopMonitor = EventLoopMonitor.start(vertx, config.getJsonObject("metrics", new JsonObject()));
 
         JsonObject jwtConfig = config.getJsonObject("jwt");
         JWTAuth jwtAuth = initJWTAuth(jwtConfig);
-        ItemHandler itemHandler = new ItemHandler(mongoClient);
-        UserHandler userHandler = new UserHandler(mongoClient, jwtAuth);
+        JsonObject itemsConfig = config.getJsonObject("items", new JsonObject());
+        ItemListCache itemListCache = initItemListCache(itemsConfig);
+        ItemListVersions itemListVersions = initItemListVersions(itemsConfig);
+        ItemListInvalidation itemListInvalidation = new ItemListInvalidation(vertx.eventBus());
+        if (itemListCache != null || itemListVersions != null) {
+          itemListInvalidationConsumer = ItemListInvalidation.subscribeOnce(vertx, itemListCache, itemListVersions);
+        }
+        ItemRepository itemRepository = embeddedStore == null
+          ? new MongoItemRepository(mongoClient, initInsertCoalescer(itemsConfig), itemsConfig.getBoolean("uuid.binary", false))
+          : embeddedStore.items();
+        UserRepository userRepository = embeddedStore == null
+          ? new MongoUserRepository(mongoClient)
+          : embeddedStore.users();
+        ItemHandler itemHandler = new ItemHandler(
+          itemRepository,
+          itemsConfig,
+          itemListCache,
+          itemListVersions,
+          itemListInvalidation
+        );
+        CredentialHasher credentialHasher = new CredentialHasher(vertx, config.getJsonObject("credentials", new JsonObject()));
+        UserHandler userHandler = new UserHandler(userRepository, jwtAuth, credentialHasher, initLoginFilter(userRepository));
 
         LOG.info("Router endpoint registration.");
         Router router = Router.router(vertx);
-        router.route().handler(BodyHandler.create());
-        router.route(ITEMS_ENDPOINT).handler(JWTAuthHandler.create(jwtAuth));
+        int compressionMinBytes = HttpServerTuning.compressionMinBytes(httpServerConfig());
+        if (compressionMinBytes > 0) {
+          router.route().handler(new CompressionThresholdHandler(compressionMinBytes));
+        }
+        JsonObject accessLogConfig = loggingConfig().getJsonObject("access", new JsonObject());
+        if (accessLogConfig.getBoolean("enabled", false)) {
+          router.route().handler(new AccessLogHandler(accessLogConfig));
+        }
+        RateLimitHandler loginRateLimit = null;
+        if (rateLimited) {
+          // per client before the body is read, per client and login once it is validated
+          Function<RoutingContext, String> clientAddress = RateLimitHandler.clientAddress(addressHeader);
+          RateLimitHandler clientRateLimit = new RateLimitHandler("client",
+            TokenBucketLimiter.shared(vertx, "client", limiterConfig(rateLimitConfig, "client")),
+            clientAddress);
+          router.post("/register").handler(clientRateLimit);
+          router.post("/login").handler(clientRateLimit);
+          loginRateLimit = new RateLimitHandler("login",
+            TokenBucketLimiter.shared(vertx, "login", limiterConfig(rateLimitConfig, "login")),
+            context -> loginAttemptOf(context, clientAddress));
+        }
+        // bodies are only read where a route expects one, ahead of the asynchronous
+        // authentication; batches are streamed by their handler instead
+        BodyHandler bodyHandler = BodyHandler.create(false)
+          .setBodyLimit(config.getJsonObject("body", new JsonObject()).getLong("max.bytes", DEFAULT_BODY_MAX_BYTES));
+        router.post("/register").handler(bodyHandler);
+        router.post("/login").handler(bodyHandler);
+        router.post(ITEMS_ENDPOINT).handler(bodyHandler);
+        router.post(ITEMS_ENDPOINT + "/batch").handler(MainVerticle::pauseUntilRead);
 
-        router.post("/register").handler(userHandler::handleRegister);
+        JWTAuthHandler jwtAuthHandler = JWTAuthHandler.create(jwtAuth);
+        router.route(ITEMS_ENDPOINT).handler(jwtAuthHandler);
+        router.route(ITEMS_ENDPOINT + "/*").handler(jwtAuthHandler);
+
+        router.post("/register").handler(RequestValidator.REGISTER).handler(userHandler::handleRegister);
+        router.post("/login").handler(RequestValidator.LOGIN);
+        if (loginRateLimit != null) {
+          router.post("/login").handler(loginRateLimit);
+        }
         router.post("/login").handler(userHandler::handleLogin);
 
-        router.post(ITEMS_ENDPOINT).handler(itemHandler::handleAddItem);
+        router.post(ITEMS_ENDPOINT).handler(RequestValidator.ITEM).handler(itemHandler::handleAddItem);
         router.get(ITEMS_ENDPOINT).handler(itemHandler::handleGetItems);
+        router.post(ITEMS_ENDPOINT + "/batch").handler(itemHandler::handleAddItems);
+
+        startMetricsServer()
+          .onSuccess(v -> createHttpServer(startPromise, config, router))
+          .onFailure(startPromise::fail);
+  }
 
-        createHttpServer(startPromise, config, router);
+  /**
+   * Hands the process-wide subscriptions this instance holds over to the next
+   * verticle started.
+   */
+  @Override
+  public void stop(Promise<Void> stopPromise) {
+    if (eventLoopMonitor != null) {
+      eventLoopMonitor.stop(vertx);
+    }
+    Future<Void> loginFilterStopped = loginFilterConsumer == null
+      ? Future.succeededFuture()
+      : loginFilter.unsubscribe(loginFilterConsumer);
+    Future<Void> itemListInvalidationStopped = itemListInvalidationConsumer == null
+      ? Future.succeededFuture()
+      : ItemListInvalidation.unsubscribe(vertx, itemListInvalidationConsumer);
+    Future.all(loginFilterStopped, itemListInvalidationStopped).<Void>mapEmpty().onComplete(stopPromise);
   }
 
   public static ConfigRetrieverOptions getConfigRetrieverOptions() {
@@ -73,16 +205,131 @@ public class MainVerticle extends AbstractVerticle {
     return new ConfigRetrieverOptions().addStore(fileStore);
   }
 
+  public static DeploymentOptions getDeploymentOptions(JsonObject config) {
+    int instances = config.getInteger("http.instances", DEFAULT_INSTANCES);
+    LOG.info("Deploying " + instances + " HTTP verticle instances.");
+    return new DeploymentOptions().setInstances(instances);
+  }
+
   private JWTAuth initJWTAuth(JsonObject jwtConfig) {
-    return JWTAuth.create(vertx, new JWTAuthOptions()
+    JWTAuth jwtAuth = JWTAuth.create(vertx, new JWTAuthOptions()
       .addPubSecKey(new PubSecKeyOptions()
         .setAlgorithm("HS256")
         .setBuffer(jwtConfig.getString("secret"))
       ));
+    JsonObject cacheConfig = jwtConfig.getJsonObject("cache", new JsonObject());
+    if (cacheConfig.getBoolean("enabled", false)) {
+      jwtAuth = new CachingJWTAuth(jwtAuth, cacheConfig);
+    }
+    return AppTracing.isEnabled() ? new TracingJWTAuth(jwtAuth) : jwtAuth;
+  }
+
+  private InsertCoalescer initInsertCoalescer(JsonObject itemsConfig) {
+    JsonObject coalesceConfig = itemsConfig.getJsonObject("coalesce", new JsonObject());
+    if (!coalesceConfig.getBoolean("enabled", false)) {
+      return null;
+    }
+    return new InsertCoalescer(vertx, mongoClient, "items", coalesceConfig);
+  }
+
+  private LoginFilter initLoginFilter(UserRepository userRepository) {
+    JsonObject filterConfig = config.getJsonObject("users", new JsonObject()).getJsonObject("filter", new JsonObject());
+    if (!filterConfig.getBoolean("enabled", false)) {
+      return null;
+    }
+    loginFilter = LoginFilter.shared(vertx, userRepository, filterConfig);
+    loginFilterConsumer = loginFilter.subscribeOnce();
+    return loginFilter;
+  }
+
+  private ItemListCache initItemListCache(JsonObject itemsConfig) {
+    JsonObject cacheConfig = itemsConfig.getJsonObject("cache", new JsonObject());
+    if (!cacheConfig.getBoolean("enabled", false)) {
+      return null;
+    }
+    return ItemListCache.shared(vertx, cacheConfig);
+  }
+
+  /**
+   * Versions are only announced to the processes of the same cluster, so ETags
+   * are off by default unless the node is clustered. They expire with the
+   * cached listings, which bounds a stale 304 to the staleness of the cache.
+   */
+  private ItemListVersions initItemListVersions(JsonObject itemsConfig) {
+    JsonObject etagConfig = itemsConfig.getJsonObject("etag", new JsonObject());
+    boolean clustered = config.getJsonObject("cluster", new JsonObject()).getBoolean("enabled", false);
+    if (!etagConfig.getBoolean("enabled", clustered)) {
+      return null;
+    }
+    long cacheTtlSeconds = itemsConfig.getJsonObject("cache", new JsonObject()).getLong("ttl.seconds", DEFAULT_CACHE_TTL_SECONDS);
+    long ttlSeconds = Math.min(etagConfig.getLong("ttl.seconds", cacheTtlSeconds), cacheTtlSeconds);
+    return ItemListVersions.shared(vertx, etagConfig.copy().put("ttl.seconds", ttlSeconds));
+  }
+
+  /**
+   * Holds back the body of a streamed upload while asynchronous handlers such
+   * as authentication run, so no chunk arrives before the handler reading it.
+   * A request that is rejected early is drained once its response is sent.
+   */
+  private static void pauseUntilRead(RoutingContext context) {
+    context.request().pause();
+    context.addEndHandler(v -> context.request().resume());
+    context.next();
+  }
+
+  /**
+   * Settings of one limiter, {@code max.entries} and {@code idle.seconds}
+   * default to the ones of the {@code rate.limit} block.
+   */
+  private static JsonObject limiterConfig(JsonObject rateLimitConfig, String name) {
+    JsonObject limiterConfig = rateLimitConfig.getJsonObject(name, new JsonObject()).copy();
+    for (String shared : new String[]{"max.entries", "idle.seconds"}) {
+      if (!limiterConfig.containsKey(shared) && rateLimitConfig.containsKey(shared)) {
+        limiterConfig.put(shared, rateLimitConfig.getValue(shared));
+      }
+    }
+    return limiterConfig;
+  }
+
+  /**
+   * Login attempts are counted per client and login: counted per login alone,
+   * anyone could lock a known user out by failing logins in their name.
+   */
+  private static String loginAttemptOf(RoutingContext context, Function<RoutingContext, String> clientAddress) {
+    String login = context.body().asJsonObject().getString("login");
+    return login == null ? null : clientAddress.apply(context) + " " + login.toLowerCase(Locale.ROOT);
+  }
+
+  private JsonObject httpServerConfig() {
+    return config.getJsonObject("http.server", new JsonObject());
+  }
+
+  private JsonObject loggingConfig() {
+    return config.getJsonObject("logging", new JsonObject());
+  }
+
+  /**
+   * Serves {@code /metrics} apart from the public port, on {@code metrics.port}
+   * bound to {@code metrics.host}. Without a port the metrics are not served.
+   */
+  private Future<Void> startMetricsServer() {
+    JsonObject metricsConfig = config.getJsonObject("metrics", new JsonObject());
+    Integer port = metricsConfig.getInteger("port");
+    if (!vertx.isMetricsEnabled() || port == null) {
+      return Future.succeededFuture();
+    }
+    String host = metricsConfig.getString("host", DEFAULT_METRICS_HOST);
+    Router router = Router.router(vertx);
+    router.get("/metrics").handler(PrometheusScrapingHandler.create());
+    return vertx.createHttpServer().requestHandler(router).listen(port, host)
+      .onSuccess(server -> LOG.info("Metrics served on " + host + ":" + port))
+      .mapEmpty();
   }
 
   private void createHttpServer(Promise<Void> startPromise, JsonObject config, Router router) {
-    HttpServerOptions options = new HttpServerOptions().setLogActivity(true);
+    HttpServerOptions options = HttpServerTuning.options(httpServerConfig());
+    // Netty wire logging is a debugging aid, it costs an event loop write per packet
+    options.setLogActivity(loggingConfig().getBoolean("wire.activity", false));
     Integer httpPort = config.getInteger("http.port");
     vertx.createHttpServer(options).requestHandler(router).listen(httpPort, http -> {
       if (http.succeeded()) {
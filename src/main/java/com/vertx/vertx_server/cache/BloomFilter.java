@@ -0,0 +1,111 @@
+package com.vertx.vertx_server.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of strings sized for {@code expectedEntries} at a target false
+ * positive rate. {@link #mightContain} never returns {@code false} for a value
+ * that was added.
+ * <p>
+ * Bits are set with compare-and-set on an {@link AtomicLongArray}, so the
+ * filter can be read and written from every event loop without locking. The
+ * bit positions come from double hashing of one 64-bit hash of the string's
+ * characters, which needs no byte array per call.
+ */
+public class BloomFilter {
+
+  private static final double LN2 = Math.log(2);
+
+  private final AtomicLongArray words;
+  private final long bits;
+  private final int hashes;
+  private final LongAdder insertions = new LongAdder();
+
+  public BloomFilter(long expectedEntries, double falsePositiveRate) {
+    if (expectedEntries < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("Bloom filter needs expected entries >= 1 and a false positive rate in ]0, 1[");
+    }
+    long optimalBits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (LN2 * LN2));
+    int wordCount = Math.toIntExact((optimalBits + 63) / 64);
+    this.words = new AtomicLongArray(wordCount);
+    this.bits = wordCount * 64L;
+    this.hashes = Math.max(1, (int) Math.round((double) bits / expectedEntries * LN2));
+  }
+
+  public void add(String value) {
+    long hash = hash(value);
+    long step = step(hash);
+    for (int i = 0; i < hashes; i++) {
+      long bit = Math.floorMod(hash + i * step, bits);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = words.get(word);
+      while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+        current = words.get(word);
+      }
+    }
+    insertions.increment();
+  }
+
+  public boolean mightContain(String value) {
+    long hash = hash(value);
+    long step = step(hash);
+    for (int i = 0; i < hashes; i++) {
+      long bit = Math.floorMod(hash + i * step, bits);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public long bitSize() {
+    return bits;
+  }
+
+  public long byteSize() {
+    return bits / 8;
+  }
+
+  public int hashCount() {
+    return hashes;
+  }
+
+  /**
+   * Number of {@link #add} calls, a value added twice counts twice.
+   */
+  public long insertions() {
+    return insertions.sum();
+  }
+
+  /**
+   * False positive rate to expect with the values added so far.
+   */
+  public double expectedFalsePositiveRate() {
+    return Math.pow(1 - Math.exp(-hashes * (double) insertions() / bits), hashes);
+  }
+
+  // FNV-1a over the characters, finished with the MurmurHash3 64-bit mixer
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  private static long step(long hash) {
+    return mix(hash ^ 0x9e3779b97f4a7c15L) | 1;
+  }
+
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
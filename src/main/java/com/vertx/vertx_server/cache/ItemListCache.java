@@ -0,0 +1,138 @@
+package com.vertx.vertx_server.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.vertx.vertx_server.metrics.AppMetrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide cache of encoded item listings keyed by owner id and variant,
+ * such as the encoding of the listing. Invalidating an owner drops all of its
+ * variants.
+ * <p>
+ * Entries are bounded by their total size in bytes and evicted by Caffeine's
+ * W-TinyLFU policy or when their TTL expires. Listings are stored already
+ * encoded so a hit is written to the response as is. Hits, misses, evictions
+ * and size are published as the Caffeine cache meters tagged
+ * {@code cache=items.listing}.
+ * <p>
+ * A listing read from Mongo is only stored if no invalidation for the same
+ * owner happened after the read started, otherwise a slow read racing a write
+ * could put stale data back into the cache.
+ */
+public class ItemListCache implements Shareable {
+
+  private static final String SHARED_MAP = "item-list-cache";
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+  private static final long DEFAULT_TTL_SECONDS = 30;
+
+  private final Cache<Key, Buffer> listings;
+  private final Cache<String, Long> invalidations;
+  private final AtomicInteger variants = new AtomicInteger(1);
+
+  public ItemListCache(JsonObject config) {
+    Duration ttl = Duration.ofSeconds(config.getLong("ttl.seconds", DEFAULT_TTL_SECONDS));
+    this.listings = Caffeine.newBuilder()
+      .maximumWeight(config.getLong("max.bytes", DEFAULT_MAX_BYTES))
+      .weigher((Key key, Buffer items) -> items.length())
+      .expireAfterWrite(ttl)
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(AppMetrics.registry(), listings, "items.listing");
+    this.invalidations = Caffeine.newBuilder()
+      .expireAfterWrite(ttl)
+      .build();
+  }
+
+  /**
+   * Returns the cache shared by every verticle instance of this Vert.x instance,
+   * creating it from {@code config} on first use.
+   */
+  public static ItemListCache shared(Vertx vertx, JsonObject config) {
+    return vertx.sharedData()
+      .<String, ItemListCache>getLocalMap(SHARED_MAP)
+      .computeIfAbsent(SHARED_MAP, name -> new ItemListCache(config));
+  }
+
+  /**
+   * Stamp to take before reading a listing from the database and to pass to
+   * {@link #put(String, int, Buffer, long)} afterwards.
+   */
+  public long readStamp() {
+    return System.nanoTime();
+  }
+
+  public Buffer get(String ownerId) {
+    return get(ownerId, 0);
+  }
+
+  public Buffer get(String ownerId, int variant) {
+    return listings.getIfPresent(new Key(ownerId, variant));
+  }
+
+  public void put(String ownerId, Buffer items, long readStamp) {
+    put(ownerId, 0, items, readStamp);
+  }
+
+  /**
+   * @param variant small number, from {@code 0}, telling the listings of an
+   *                owner apart
+   */
+  public void put(String ownerId, int variant, Buffer items, long readStamp) {
+    variants.accumulateAndGet(variant + 1, Math::max);
+    listings.asMap().compute(new Key(ownerId, variant), (key, current) -> {
+      Long invalidatedAt = invalidations.getIfPresent(ownerId);
+      return invalidatedAt == null || invalidatedAt - readStamp < 0 ? items : current;
+    });
+  }
+
+  public void invalidate(String ownerId) {
+    // recorded first: a put that did not see it ran before the removal below
+    invalidations.put(ownerId, System.nanoTime());
+    for (int variant = 0, count = variants.get(); variant < count; variant++) {
+      listings.invalidate(new Key(ownerId, variant));
+    }
+  }
+
+  public JsonObject metrics() {
+    CacheStats stats = listings.stats();
+    return new JsonObject()
+      .put("entries", listings.estimatedSize())
+      .put("hits", stats.hitCount())
+      .put("misses", stats.missCount())
+      .put("evictions", stats.evictionCount());
+  }
+
+  private static final class Key {
+
+    private final String ownerId;
+    private final int variant;
+
+    Key(String ownerId, int variant) {
+      this.ownerId = ownerId;
+      this.variant = variant;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return variant == other.variant && ownerId.equals(other.ownerId);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * ownerId.hashCode() + variant;
+    }
+  }
+}
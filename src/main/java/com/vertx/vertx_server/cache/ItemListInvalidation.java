@@ -0,0 +1,86 @@
+package com.vertx.vertx_server.cache;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.shareddata.LocalMap;
+
+/**
+ * Event bus channel carrying owner ids whose item listing changed, with the
+ * new {@link ItemListVersions version} of the listing in the {@code version}
+ * header when the writer keeps versions.
+ * <p>
+ * Messages are published, so every subscribed cache sees them: the cache of
+ * this process and, when Vert.x runs clustered, the caches of every other node
+ * of the cluster. The cache and versions are process-wide, so the verticle
+ * instances subscribe them through {@link #subscribeOnce}.
+ */
+public class ItemListInvalidation {
+
+  public static final String ADDRESS = "items.listing.invalidated";
+  static final String VERSION = "version";
+  private static final String SHARED_MAP = "item-list-invalidation";
+
+  private final EventBus eventBus;
+
+  public ItemListInvalidation(EventBus eventBus) {
+    this.eventBus = eventBus;
+  }
+
+  public void publish(String ownerId) {
+    eventBus.publish(ADDRESS, ownerId);
+  }
+
+  public void publish(String ownerId, String version) {
+    eventBus.publish(ADDRESS, ownerId, new DeliveryOptions().addHeader(VERSION, version));
+  }
+
+  /**
+   * Evicts the owner's listing from {@code cache} for every invalidation
+   * published from now on. The consumer is unregistered together with the
+   * verticle that subscribed.
+   */
+  public MessageConsumer<String> subscribe(ItemListCache cache) {
+    return subscribe(cache, null);
+  }
+
+  /**
+   * Like {@link #subscribe(ItemListCache, ItemListVersions)}, but only for the
+   * first verticle of this Vert.x instance that calls it, so that an
+   * invalidation is applied once and not once per verticle instance. That
+   * verticle passes the consumer to {@link #unsubscribe} when it stops, for the
+   * next verticle started to subscribe again.
+   *
+   * @return the consumer, {@code null} when another verticle subscribed already
+   */
+  public static MessageConsumer<String> subscribeOnce(Vertx vertx, ItemListCache cache, ItemListVersions versions) {
+    LocalMap<String, Boolean> subscribed = vertx.sharedData().getLocalMap(SHARED_MAP);
+    if (subscribed.putIfAbsent(SHARED_MAP, true) != null) {
+      return null;
+    }
+    return new ItemListInvalidation(vertx.eventBus()).subscribe(cache, versions);
+  }
+
+  public static Future<Void> unsubscribe(Vertx vertx, MessageConsumer<String> consumer) {
+    vertx.sharedData().getLocalMap(SHARED_MAP).remove(SHARED_MAP);
+    return consumer.unregister();
+  }
+
+  /**
+   * Evicts the owner's listing from {@code cache} and then moves its version
+   * in {@code versions}, in that order so that a request seeing the new
+   * version cannot be served the old listing. Either may be {@code null}.
+   */
+  public MessageConsumer<String> subscribe(ItemListCache cache, ItemListVersions versions) {
+    return eventBus.consumer(ADDRESS, message -> {
+      if (cache != null) {
+        cache.invalidate(message.body());
+      }
+      if (versions != null) {
+        versions.changed(message.body(), message.headers().get(VERSION));
+      }
+    });
+  }
+}
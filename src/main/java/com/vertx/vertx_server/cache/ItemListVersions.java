@@ -0,0 +1,114 @@
+package com.vertx.vertx_server.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide version of every owner's item listing, used as the entity tag
+ * of the listing so that an unchanged listing is answered with 304 without
+ * reading or encoding it.
+ * <p>
+ * A version is {@code <epoch>-<sequence>}: the epoch is drawn when the process
+ * starts and the sequence is shared by every owner, so a version is never
+ * handed out twice, not even after a restart or after the owner's entry was
+ * evicted. An owner seen for the first time gets a fresh version, which costs
+ * its clients one full response but can never match an outdated tag.
+ * <p>
+ * Writes on this node {@link #bump} the version. Writes on other nodes arrive
+ * with the version they picked, and replaying that version is idempotent.
+ * <p>
+ * Versions expire {@code ttl.seconds} after they were set, like the cached
+ * listings. Writes made through another process that is not in the same
+ * cluster, or whose invalidation was lost, are never announced here; the
+ * expiry bounds how long such a listing can be answered with 304.
+ */
+public class ItemListVersions implements Shareable {
+
+  private static final String SHARED_MAP = "item-list-versions";
+  private static final long DEFAULT_MAX_ENTRIES = 1_000_000;
+  private static final long DEFAULT_TTL_SECONDS = 30;
+
+  private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+  private final AtomicLong sequence = new AtomicLong();
+  private final Cache<String, String> versions;
+  private final LongAdder notModified = new LongAdder();
+
+  public ItemListVersions(JsonObject config) {
+    this(config, System::nanoTime);
+  }
+
+  ItemListVersions(JsonObject config, LongSupplier clock) {
+    this.versions = Caffeine.newBuilder()
+      .maximumSize(config.getLong("max.entries", DEFAULT_MAX_ENTRIES))
+      .expireAfterWrite(Duration.ofSeconds(config.getLong("ttl.seconds", DEFAULT_TTL_SECONDS)))
+      .ticker(clock::getAsLong)
+      .build();
+  }
+
+  /**
+   * Returns the versions shared by every verticle instance of this Vert.x
+   * instance, creating them from {@code config} on first use.
+   */
+  public static ItemListVersions shared(Vertx vertx, JsonObject config) {
+    return vertx.sharedData()
+      .<String, ItemListVersions>getLocalMap(SHARED_MAP)
+      .computeIfAbsent(SHARED_MAP, name -> new ItemListVersions(config));
+  }
+
+  /**
+   * Version to take before reading a listing: the listing read afterwards is
+   * at least as recent as the version.
+   */
+  public String current(String ownerId) {
+    return versions.get(ownerId, key -> next());
+  }
+
+  /**
+   * Gives the owner a new version once its listing changed on this node.
+   *
+   * @return the new version, to publish to the other nodes
+   */
+  public String bump(String ownerId) {
+    String version = next();
+    versions.put(ownerId, version);
+    return version;
+  }
+
+  /**
+   * Applies a version published by a write on another node, or a new one when
+   * the publisher sent none. Versions of this node are already applied.
+   */
+  public void changed(String ownerId, String version) {
+    if (version == null) {
+      bump(ownerId);
+    } else if (!version.startsWith(epoch + "-")) {
+      versions.put(ownerId, version);
+    }
+  }
+
+  /**
+   * Counts a listing answered with 304.
+   */
+  public void notModified() {
+    notModified.increment();
+  }
+
+  public JsonObject metrics() {
+    return new JsonObject()
+      .put("owners", versions.estimatedSize())
+      .put("notModified", notModified.sum());
+  }
+
+  private String next() {
+    return epoch + "-" + Long.toHexString(sequence.incrementAndGet());
+  }
+}
@@ -0,0 +1,219 @@
+package com.vertx.vertx_server.cache;
+
+import com.vertx.vertx_server.metrics.AppMetrics;
+import com.vertx.vertx_server.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide Bloom filter of the registered logins, used to answer logins
+ * for unknown users without a Mongo lookup.
+ * <p>
+ * The filter is built by paging through the registered logins in login order,
+ * at startup and then every {@code refresh.interval.seconds} into a new
+ * filter that replaces the old one once complete. New registrations are added
+ * right away and published on the event bus so that the filters of the other
+ * verticle instances and cluster nodes learn them too.
+ * <p>
+ * A registration this process does not hear about, made by a process outside
+ * its cluster, lost on the event bus or inserted without the service, is
+ * only learnt by the next rebuild. An absent answer is therefore only given
+ * while the last completed build started less than
+ * {@code refresh.interval.seconds} ago; before the first build, or when a
+ * rebuild is late or failed, every login is reported as possibly known. Such
+ * a user can still be refused for up to one interval, so the filter is meant
+ * for a single node or a cluster and is disabled by default.
+ * <p>
+ * Size and bit count are published as the {@code users.filter.bytes} and
+ * {@code users.filter.bits} gauges.
+ */
+public class LoginFilter implements Shareable {
+
+  public static final String ADDRESS = "users.registered";
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoginFilter.class);
+  private static final String SHARED_MAP = "login-filter";
+  private static final long DEFAULT_EXPECTED_ENTRIES = 1_000_000;
+  private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+  private static final int DEFAULT_LOAD_PAGE_SIZE = 10_000;
+  private static final long DEFAULT_REFRESH_INTERVAL_SECONDS = 60;
+
+  private final EventBus eventBus;
+  private final long expectedEntries;
+  private final double falsePositiveRate;
+  private final int loadPageSize;
+  private final long refreshIntervalNanos;
+  private final LongSupplier clock;
+  private final AtomicBoolean loading = new AtomicBoolean();
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+  private final LongAdder skippedLookups = new LongAdder();
+  private volatile BloomFilter filter;
+  // filter being rebuilt, also given the logins registered meanwhile
+  private volatile BloomFilter building;
+  private volatile long builtAt;
+  private volatile boolean loaded;
+
+  public LoginFilter(EventBus eventBus, JsonObject config) {
+    this(eventBus, config, System::nanoTime);
+  }
+
+  LoginFilter(EventBus eventBus, JsonObject config, LongSupplier clock) {
+    this.eventBus = eventBus;
+    this.expectedEntries = config.getLong("expected.entries", DEFAULT_EXPECTED_ENTRIES);
+    this.falsePositiveRate = config.getDouble("false.positive.rate", DEFAULT_FALSE_POSITIVE_RATE);
+    this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+    this.loadPageSize = config.getInteger("load.page.size", DEFAULT_LOAD_PAGE_SIZE);
+    this.refreshIntervalNanos = TimeUnit.SECONDS.toNanos(
+      config.getLong("refresh.interval.seconds", DEFAULT_REFRESH_INTERVAL_SECONDS));
+    this.clock = clock;
+
+    MeterRegistry registry = AppMetrics.registry();
+    Gauge.builder("users.filter.bytes", this, loginFilter -> loginFilter.filter.byteSize()).baseUnit("bytes").register(registry);
+    Gauge.builder("users.filter.bits", this, loginFilter -> loginFilter.filter.bitSize()).register(registry);
+  }
+
+  /**
+   * Returns the filter shared by every verticle instance of this Vert.x
+   * instance. The first call creates it from {@code config}, starts loading
+   * the registered logins and schedules the rebuilds.
+   */
+  public static LoginFilter shared(Vertx vertx, UserRepository userRepository, JsonObject config) {
+    return vertx.sharedData()
+      .<String, LoginFilter>getLocalMap(SHARED_MAP)
+      .computeIfAbsent(SHARED_MAP, name -> {
+        LoginFilter loginFilter = new LoginFilter(vertx.eventBus(), config);
+        loginFilter.load(userRepository);
+        vertx.setPeriodic(TimeUnit.NANOSECONDS.toMillis(loginFilter.refreshIntervalNanos),
+          timer -> loginFilter.load(userRepository));
+        return loginFilter;
+      });
+  }
+
+  /**
+   * @return {@code false} only when the login was not registered when the
+   * current filter was built, less than one refresh interval ago
+   */
+  public boolean mightExist(String login) {
+    if (!isFresh() || filter.mightContain(login)) {
+      return true;
+    }
+    skippedLookups.increment();
+    return false;
+  }
+
+  /**
+   * Adds a login that was just registered here and tells the other nodes.
+   */
+  public void registered(String login) {
+    add(login);
+    eventBus.publish(ADDRESS, login);
+  }
+
+  /**
+   * Adds the logins registered on other nodes from now on. The filter is
+   * process-wide, so only the first verticle that calls this subscribes; it
+   * passes the consumer to {@link #unsubscribe} when it stops, for the next
+   * verticle started to take over.
+   *
+   * @return the consumer, {@code null} when another verticle subscribed already
+   */
+  public MessageConsumer<String> subscribeOnce() {
+    if (!subscribed.compareAndSet(false, true)) {
+      return null;
+    }
+    // adding is idempotent, and a login the current filter seems to hold may
+    // still be missing from the one being rebuilt
+    return eventBus.consumer(ADDRESS, message -> add(message.body()));
+  }
+
+  public Future<Void> unsubscribe(MessageConsumer<String> consumer) {
+    subscribed.set(false);
+    return consumer.unregister();
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * @return whether absent answers are given, see the class comment
+   */
+  public boolean isFresh() {
+    return loaded && clock.getAsLong() - builtAt < refreshIntervalNanos;
+  }
+
+  public JsonObject metrics() {
+    BloomFilter filter = this.filter;
+    return new JsonObject()
+      .put("loaded", loaded)
+      .put("fresh", isFresh())
+      .put("insertions", filter.insertions())
+      .put("bits", filter.bitSize())
+      .put("bytes", filter.byteSize())
+      .put("hashes", filter.hashCount())
+      .put("expectedFalsePositiveRate", filter.expectedFalsePositiveRate())
+      .put("skippedLookups", skippedLookups.sum());
+  }
+
+  /**
+   * Builds a new filter from the registered logins, a page at a time, and
+   * replaces the current one once the last page is read. Does nothing while
+   * a previous build is still running.
+   */
+  public void load(UserRepository userRepository) {
+    if (!loading.compareAndSet(false, true)) {
+      return;
+    }
+    BloomFilter next = new BloomFilter(expectedEntries, falsePositiveRate);
+    building = next;
+    loadPage(userRepository, next, clock.getAsLong(), null);
+  }
+
+  private void loadPage(UserRepository userRepository, BloomFilter next, long startedAt, String after) {
+    userRepository.findLogins(after, loadPageSize).onComplete(res -> {
+      if (res.failed()) {
+        building = null;
+        loading.set(false);
+        LOG.error("Could not load the registered logins, the filter is trusted until it is too old: " + res.cause().getMessage());
+        return;
+      }
+      List<String> logins = res.result();
+      for (String login : logins) {
+        next.add(login);
+      }
+      if (logins.size() == loadPageSize) {
+        loadPage(userRepository, next, startedAt, logins.get(logins.size() - 1));
+        return;
+      }
+      filter = next;
+      building = null;
+      builtAt = startedAt;
+      loaded = true;
+      loading.set(false);
+      LOG.info("Loaded " + next.insertions() + " logins into a " + next.byteSize() + " bytes filter.");
+    });
+  }
+
+  private void add(String login) {
+    // read before the current filter: a build that swapped in between is the one read here
+    BloomFilter next = building;
+    filter.add(login);
+    if (next != null) {
+      next.add(login);
+    }
+  }
+}
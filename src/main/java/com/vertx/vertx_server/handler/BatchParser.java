@@ -0,0 +1,131 @@
+package com.vertx.vertx_server.handler;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.JsonEvent;
+import io.vertx.core.parsetools.JsonEventType;
+import io.vertx.core.parsetools.JsonParser;
+
+/**
+ * Splits a batch body into its entries while it is being received, so entries
+ * can be validated without buffering the whole request.
+ * <p>
+ * A JSON array is read with a {@link JsonParser} that only materializes one
+ * element at a time. NDJSON is split on line breaks; a line that is not a JSON
+ * object is passed on as a string so it fails validation on its own instead
+ * of rejecting the whole batch.
+ */
+class BatchParser implements Handler<Buffer> {
+
+  private static final byte NEW_LINE = '\n';
+
+  private final boolean ndjson;
+  private final Handler<Object> entryHandler;
+  private final JsonParser jsonParser;
+
+  private Buffer pendingLine = Buffer.buffer();
+  private int depth;
+  private boolean arrayStarted;
+  private boolean failed;
+  private Handler<Throwable> exceptionHandler;
+
+  BatchParser(boolean ndjson, Handler<Object> entryHandler) {
+    this.ndjson = ndjson;
+    this.entryHandler = entryHandler;
+    this.jsonParser = ndjson ? null : JsonParser.newParser()
+      .objectValueMode()
+      .handler(this::handleEvent)
+      .exceptionHandler(this::fail);
+  }
+
+  BatchParser exceptionHandler(Handler<Throwable> exceptionHandler) {
+    this.exceptionHandler = exceptionHandler;
+    return this;
+  }
+
+  @Override
+  public void handle(Buffer chunk) {
+    if (failed) {
+      return;
+    }
+    if (!ndjson) {
+      jsonParser.handle(chunk);
+      return;
+    }
+    int lineStart = 0;
+    for (int i = 0; i < chunk.length(); i++) {
+      if (chunk.getByte(i) == NEW_LINE) {
+        pendingLine.appendBuffer(chunk, lineStart, i - lineStart);
+        handleLine(pendingLine);
+        pendingLine = Buffer.buffer();
+        lineStart = i + 1;
+      }
+    }
+    pendingLine.appendBuffer(chunk, lineStart, chunk.length() - lineStart);
+  }
+
+  void end() {
+    if (failed) {
+      return;
+    }
+    if (ndjson) {
+      handleLine(pendingLine);
+      return;
+    }
+    jsonParser.end();
+    if (!failed && (!arrayStarted || depth != 0)) {
+      fail(new DecodeException("Body is not a complete JSON array."));
+    }
+  }
+
+  private void handleLine(Buffer line) {
+    String text = line.toString().trim();
+    if (text.isEmpty()) {
+      return;
+    }
+    try {
+      entryHandler.handle(new JsonObject(text));
+    } catch (DecodeException e) {
+      entryHandler.handle(text);
+    }
+  }
+
+  private void handleEvent(JsonEvent event) {
+    if (failed) {
+      return;
+    }
+    JsonEventType type = event.type();
+    if (type == JsonEventType.START_ARRAY) {
+      if (depth == 0) {
+        if (arrayStarted) {
+          fail(new DecodeException("Body must contain a single JSON array."));
+          return;
+        }
+        arrayStarted = true;
+      } else if (depth == 1) {
+        // an array where an item is expected, its content is skipped
+        entryHandler.handle(new JsonArray());
+      }
+      depth++;
+    } else if (type == JsonEventType.END_ARRAY) {
+      depth--;
+    } else if (depth == 0) {
+      fail(new DecodeException("Body must be a JSON array."));
+    } else if (depth == 1) {
+      entryHandler.handle(event.value());
+    }
+  }
+
+  private void fail(Throwable cause) {
+    if (failed) {
+      return;
+    }
+    failed = true;
+    if (exceptionHandler != null) {
+      exceptionHandler.handle(cause);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.vertx.vertx_server.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.vertx.ext.web.MIMEHeader;
+import io.vertx.ext.web.ParsedHeaderValues;
+
+/**
+ * Encodings of the item responses, chosen from the {@code Accept} header of
+ * the request. CBOR and Smile carry the same data as JSON in fewer bytes and
+ * without number or escape formatting; Smile also writes each repeated field
+ * name once per response.
+ */
+public enum ItemFormat {
+
+  JSON("json", new JsonFactory()),
+  CBOR("cbor", new CBORFactory()),
+  SMILE("x-jackson-smile", new SmileFactory());
+
+  private static final String TYPE = "application";
+  private static final String WILDCARD = "*";
+
+  private final String subtype;
+  private final String contentType;
+  private final JsonFactory factory;
+
+  ItemFormat(String subtype, JsonFactory factory) {
+    this.subtype = subtype;
+    this.contentType = TYPE + "/" + subtype;
+    this.factory = factory;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  JsonFactory factory() {
+    return factory;
+  }
+
+  /**
+   * Picks the format of the acceptable media type with the highest weight.
+   * JSON is the answer to wildcards, to a missing header and to a header
+   * naming none of the formats, so clients that never asked for anything
+   * keep getting what they got before.
+   */
+  public static ItemFormat negotiate(ParsedHeaderValues headers) {
+    if (headers == null) {
+      return JSON;
+    }
+    // sorted by weight, highest first
+    for (MIMEHeader accepted : headers.accept()) {
+      // q=0 rules a type out
+      if (accepted.weight() <= 0) {
+        continue;
+      }
+      for (ItemFormat format : values()) {
+        if (format.matches(accepted)) {
+          return format;
+        }
+      }
+    }
+    return JSON;
+  }
+
+  private boolean matches(MIMEHeader accepted) {
+    return (WILDCARD.equals(accepted.component()) || TYPE.equalsIgnoreCase(accepted.component()))
+      && (WILDCARD.equals(accepted.subComponent()) || subtype.equalsIgnoreCase(accepted.subComponent()));
+  }
+}
@@ -1,67 +1,296 @@
 package com.vertx.vertx_server.handler;
 
+import com.vertx.vertx_server.cache.ItemListCache;
+import com.vertx.vertx_server.cache.ItemListInvalidation;
+import com.vertx.vertx_server.cache.ItemListVersions;
 import com.vertx.vertx_server.model.Item;
+import com.vertx.vertx_server.repository.ItemRepository;
+import com.vertx.vertx_server.validation.RequestValidator;
+import io.opentelemetry.api.trace.Span;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
-import io.vertx.ext.mongo.MongoClient;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.web.RoutingContext;
+import org.bson.types.ObjectId;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 public class ItemHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(ItemHandler.class);
-  private static final String MONGODB_ITEMS_COLLECTION = "items";
   private static final String OWNER_ID = "ownerId";
-  private final MongoClient mongoClient;
+  private static final String SPAN_OWNER_ID = "app.owner_id";
+  private static final String MONGO_ID = "_id";
+  private static final String LIMIT = "limit";
+  private static final String AFTER = "after";
+  private static final String STREAM = "stream";
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final int STREAM_BATCH_SIZE = 500;
+  private static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+  private static final int DEFAULT_BATCH_MAX_SIZE = 10_000;
+  private static final long DEFAULT_BATCH_MAX_BYTES = 16 * 1024 * 1024;
+  private static final String NDJSON = "application/x-ndjson";
+  private static final String ANY_ETAG = "*";
+  private static final String WEAK_PREFIX = "W/";
 
+  private final ItemRepository itemRepository;
+  private final int batchChunkSize;
+  private final int batchMaxSize;
+  private final long batchMaxBytes;
+  private final ItemListCache itemListCache;
+  private final ItemListVersions itemListVersions;
+  private final ItemListInvalidation itemListInvalidation;
+
+  /**
+   * @param itemListCache   serves repeated listings without the repository, or
+   *                        {@code null} to always read through
+   * @param itemListVersions tags listings so that unchanged ones are answered
+   *                        with 304, or {@code null} to always send the listing
+   * @param itemListInvalidation tells the caches of other instances about writes,
+   *                        or {@code null} when there is nobody to tell
+   */
   public ItemHandler(
-    MongoClient mongoClient
+    ItemRepository itemRepository,
+    JsonObject config,
+    ItemListCache itemListCache,
+    ItemListVersions itemListVersions,
+    ItemListInvalidation itemListInvalidation
   ) {
-    this.mongoClient = mongoClient;
+    this.itemRepository = itemRepository;
+    this.itemListCache = itemListCache;
+    this.itemListVersions = itemListVersions;
+    this.itemListInvalidation = itemListInvalidation;
+    this.batchChunkSize = config.getInteger("batch.chunk.size", DEFAULT_BATCH_CHUNK_SIZE);
+    this.batchMaxSize = config.getInteger("batch.max.size", DEFAULT_BATCH_MAX_SIZE);
+    this.batchMaxBytes = config.getLong("batch.max.bytes", DEFAULT_BATCH_MAX_BYTES);
   }
 
+  /**
+   * Expects a body accepted by {@code RequestValidator.ITEM}. The id of the
+   * new item is returned in the {@link ItemFormat} the client accepts.
+   */
   public void handleAddItem(RoutingContext context) {
     JsonObject userPrincipal = context.user().principal();
     String ownerId = userPrincipal.getString(OWNER_ID);
+    Span.current().setAttribute(SPAN_OWNER_ID, ownerId);
 
     JsonObject body = context.getBodyAsJson();
-    if (body == null) {
-      context.response().setStatusCode(400).end("JSON is null.");
+    Item item = new Item(
+      UUID.randomUUID(),
+      UUID.fromString(ownerId),
+      body.getString("name")
+    );
+
+    saveItem(context, item, ItemFormat.negotiate(context.parsedHeaders()));
+  }
+
+  /**
+   * Accepts a JSON array or an NDJSON body of items and stores the valid ones
+   * with unordered bulk writes of {@code batch.chunk.size} documents. Responds
+   * with one result per submitted item, in submission order.
+   * <p>
+   * The body is parsed while it arrives, the route has no body handler.
+   * Requests larger than {@code batch.max.bytes} or with more than
+   * {@code batch.max.size} items are rejected with 413 as soon as the limit
+   * is crossed.
+   */
+  public void handleAddItems(RoutingContext context) {
+    JsonObject userPrincipal = context.user().principal();
+    UUID ownerId = UUID.fromString(userPrincipal.getString(OWNER_ID));
+    Span span = Span.current().setAttribute(SPAN_OWNER_ID, ownerId.toString());
+    HttpServerRequest request = context.request();
+
+    String contentLength = request.getHeader("Content-Length");
+    long declaredBytes;
+    try {
+      declaredBytes = contentLength == null ? 0 : Long.parseLong(contentLength);
+    } catch (NumberFormatException e) {
+      declaredBytes = -1;
+    }
+    if (declaredBytes < 0) {
+      rejectBatch(context, 400, "Content-Length must be a number of bytes.");
       return;
     }
-
-    String itemName = body.getString("name");
-    if (itemName == null || itemName.isEmpty()) {
-      context.response().setStatusCode(400).end("Item name is missing");
+    if (declaredBytes > batchMaxBytes) {
+      rejectBatch(context, 413, "Batch exceeds " + batchMaxBytes + " bytes.");
       return;
     }
 
-    Item item = new Item(
-      UUID.randomUUID(),
-      UUID.fromString(ownerId),
-      itemName
-    );
+    List<JsonObject> results = new ArrayList<>();
+    List<Integer> indexes = new ArrayList<>();
+    List<JsonObject> documents = new ArrayList<>();
+    long[] bytesRead = {0};
+
+    BatchParser parser = new BatchParser(isNdjson(request), entry -> {
+      int index = results.size();
+      if (index == batchMaxSize) {
+        rejectBatch(context, 413, "Batch exceeds " + batchMaxSize + " items.");
+        return;
+      }
+      String error = RequestValidator.ITEM.validate(entry);
+      if (error != null) {
+        results.add(batchResult(index, 400).put("error", error));
+        return;
+      }
+      Item item = new Item(UUID.randomUUID(), ownerId, ((JsonObject) entry).getString("name"));
+      results.add(null);
+      indexes.add(index);
+      documents.add(item.toJson().put(MONGO_ID, new ObjectId().toHexString()));
+    }).exceptionHandler(cause -> rejectBatch(context, 400, "Body must be a JSON array or NDJSON."));
 
-    saveItem(context, item);
+    request.handler(chunk -> {
+      if (context.response().ended()) {
+        return;
+      }
+      bytesRead[0] += chunk.length();
+      if (bytesRead[0] > batchMaxBytes) {
+        rejectBatch(context, 413, "Batch exceeds " + batchMaxBytes + " bytes.");
+        return;
+      }
+      parser.handle(chunk);
+    });
+    request.endHandler(v -> {
+      parser.end();
+      if (context.response().ended()) {
+        return;
+      }
+      if (results.isEmpty()) {
+        rejectBatch(context, 400, "Batch is empty.");
+        return;
+      }
+      span.setAttribute("app.batch.size", results.size());
+      writeBatch(context, ownerId, documents, indexes, results);
+    });
+    request.resume();
   }
 
+  private void writeBatch(
+    RoutingContext context,
+    UUID ownerId,
+    List<JsonObject> documents,
+    List<Integer> indexes,
+    List<JsonObject> results
+  ) {
+    Future<Void> writes = Future.succeededFuture();
+    for (int from = 0; from < documents.size(); from += batchChunkSize) {
+      int chunkStart = from;
+      int chunkEnd = Math.min(from + batchChunkSize, documents.size());
+      writes = writes.compose(v -> writeChunk(documents, indexes, chunkStart, chunkEnd, results));
+    }
+    writes.onComplete(v -> {
+      if (!documents.isEmpty()) {
+        invalidateListing(ownerId.toString());
+      }
+      context.response()
+        .setStatusCode(200)
+        .putHeader("Content-Type", "application/json")
+        .end(new JsonArray(results).encode());
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Batch of " + documents.size() + " items processed.");
+      }
+    });
+  }
+
+  private static void rejectBatch(RoutingContext context, int status, String message) {
+    if (context.response().ended()) {
+      return;
+    }
+    // the rest of the upload is not read, the connection cannot be reused
+    context.response()
+      .setStatusCode(status)
+      .putHeader("Connection", "close")
+      .end(message);
+  }
+
+  /**
+   * Lists, pages or streams the items of the user, in the {@link ItemFormat}
+   * the client accepts. A full listing carries an {@code ETag} and is answered
+   * with 304, before any read or encoding, when {@code If-None-Match} holds
+   * the current one.
+   */
   public void handleGetItems(RoutingContext context) {
     JsonObject userPrincipal = context.user().principal();
     String ownerId = userPrincipal.getString(OWNER_ID);
-    JsonObject query = new JsonObject().put("owner", ownerId);
-    findItems(context, query);
+    Span.current().setAttribute(SPAN_OWNER_ID, ownerId);
+    ItemFormat format = ItemFormat.negotiate(context.parsedHeaders());
+
+    if (Boolean.parseBoolean(firstQueryParam(context, STREAM))) {
+      streamItems(context, ownerId, format);
+      return;
+    }
+
+    String limitParam = firstQueryParam(context, LIMIT);
+    String after = firstQueryParam(context, AFTER);
+    if (limitParam == null && after == null) {
+      findItems(context, ownerId, format);
+      return;
+    }
+
+    int limit;
+    try {
+      limit = limitParam == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limitParam);
+    } catch (NumberFormatException e) {
+      limit = -1;
+    }
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      RequestValidator.badRequest(context, "limit: Must be between 1 and " + MAX_PAGE_SIZE + ".");
+      return;
+    }
+    findItemsPage(context, ownerId, limit, after, format);
   }
 
-  private void saveItem(RoutingContext context, Item item) {
-    mongoClient.save(MONGODB_ITEMS_COLLECTION, JsonObject.mapFrom(item), res -> {
+  private static boolean isNdjson(HttpServerRequest request) {
+    String contentType = request.getHeader("Content-Type");
+    return contentType != null && contentType.startsWith(NDJSON);
+  }
+
+  private Future<Void> writeChunk(
+    List<JsonObject> documents,
+    List<Integer> indexes,
+    int from,
+    int to,
+    List<JsonObject> results
+  ) {
+    return itemRepository.insertAll(documents.subList(from, to)).map(errors -> {
+      for (int i = from; i < to; i++) {
+        int index = indexes.get(i);
+        String error = errors.get(i - from);
+        results.set(index, error == null
+          ? batchResult(index, 201).put("id", documents.get(i).getString(MONGO_ID))
+          : batchResult(index, 500).put("error", error));
+      }
+      return null;
+    });
+  }
+
+  private static JsonObject batchResult(int index, int status) {
+    return new JsonObject().put("index", index).put("status", status);
+  }
+
+  private static String firstQueryParam(RoutingContext context, String name) {
+    List<String> values = context.queryParam(name);
+    return values == null || values.isEmpty() ? null : values.get(0);
+  }
+
+  private void saveItem(RoutingContext context, Item item, ItemFormat format) {
+    itemRepository.save(item.toJson()).onComplete(res -> {
       if (res.succeeded()) {
+        invalidateListing(item.getOwner().toString());
         context.response()
           .setStatusCode(201)
-          .putHeader("Content-Type", "application/json")
-          .end(new JsonObject().put("id", res.result()).encode());
-        LOG.info("Item added.");
+          .putHeader("Content-Type", format.contentType())
+          .putHeader("Vary", "Accept")
+          .end(ItemListEncoder.encodeValue(new JsonObject().put("id", res.result()), format));
+        LOG.debug("Item added.");
       } else {
         context.response().setStatusCode(500).end("Failed to save item");
         LOG.error(res.cause().getMessage());
@@ -69,17 +298,158 @@ public class ItemHandler {
     });
   }
 
-  private void findItems(RoutingContext context, JsonObject query) {
-    mongoClient.find(MONGODB_ITEMS_COLLECTION, query, res -> {
+  private void findItems(RoutingContext context, String ownerId, ItemFormat format) {
+    // taken before the read, so the tag is never newer than the listing it is sent with
+    String etag = itemListVersions == null ? null : etag(itemListVersions.current(ownerId), format);
+    if (etag != null && matches(context.request().getHeader("If-None-Match"), etag)) {
+      itemListVersions.notModified();
+      Span.current().setAttribute("app.not_modified", true);
+      context.response()
+        .setStatusCode(304)
+        .putHeader("ETag", etag)
+        .putHeader("Vary", "Accept")
+        .end();
+      return;
+    }
+    if (itemListCache != null) {
+      Buffer cached = itemListCache.get(ownerId, format.ordinal());
+      Span.current().setAttribute("app.cache.hit", cached != null);
+      if (cached != null) {
+        respondWithItems(context, cached, format, etag);
+        return;
+      }
+    }
+    long readStamp = itemListCache == null ? 0 : itemListCache.readStamp();
+    itemRepository.findByOwner(ownerId).onComplete(res -> {
+      if (res.succeeded()) {
+        Buffer items = ItemListEncoder.encode(res.result(), format);
+        if (itemListCache != null) {
+          itemListCache.put(ownerId, format.ordinal(), items, readStamp);
+        }
+        respondWithItems(context, items, format, etag);
+      } else {
+        context.response().setStatusCode(500).end("Failed to retrieve items");
+        LOG.error(res.cause().getMessage());
+      }
+    });
+  }
+
+  private void respondWithItems(RoutingContext context, Buffer items, ItemFormat format, String etag) {
+    HttpServerResponse response = context.response()
+      .setStatusCode(200)
+      .putHeader("Content-Type", format.contentType())
+      .putHeader("Vary", "Accept");
+    if (etag != null) {
+      response.putHeader("ETag", etag);
+    }
+    response.end(items);
+  }
+
+  // weak: the same tag is sent whether or not the response gets compressed
+  private static String etag(String version, ItemFormat format) {
+    return WEAK_PREFIX + "\"" + version + "-" + format.ordinal() + "\"";
+  }
+
+  /**
+   * Weak comparison of {@code etag} with the tags of an {@code If-None-Match}
+   * header.
+   */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    String opaqueTag = opaqueTag(etag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals(ANY_ETAG) || opaqueTag(tag).equals(opaqueTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String opaqueTag(String tag) {
+    return tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+  }
+
+  private void invalidateListing(String ownerId) {
+    if (itemListCache != null) {
+      itemListCache.invalidate(ownerId);
+    }
+    // after the cache: a request seeing the new version cannot find the old listing
+    String version = itemListVersions == null ? null : itemListVersions.bump(ownerId);
+    if (itemListInvalidation != null) {
+      if (version == null) {
+        itemListInvalidation.publish(ownerId);
+      } else {
+        itemListInvalidation.publish(ownerId, version);
+      }
+    }
+  }
+
+  /**
+   * Keyset pagination on {@code _id}: fetches one document more than requested
+   * to know whether a next page exists without a second query.
+   */
+  private void findItemsPage(RoutingContext context, String ownerId, int limit, String after, ItemFormat format) {
+    itemRepository.findPageByOwner(ownerId, after, limit + 1).onComplete(res -> {
       if (res.succeeded()) {
+        List<JsonObject> items = res.result();
+        String next = null;
+        if (items.size() > limit) {
+          items = items.subList(0, limit);
+          next = items.get(limit - 1).getString(MONGO_ID);
+        }
+        // the cursor only goes out as next, items look the same as in the other listings
+        items.forEach(item -> item.remove(MONGO_ID));
+        JsonObject page = new JsonObject().put("items", new JsonArray(items)).put("next", next);
         context.response()
           .setStatusCode(200)
-          .putHeader("Content-Type", "application/json")
-          .end(res.result().toString());
+          .putHeader("Content-Type", format.contentType())
+          .putHeader("Vary", "Accept")
+          .end(ItemListEncoder.encodeValue(page, format));
       } else {
         context.response().setStatusCode(500).end("Failed to retrieve items");
         LOG.error(res.cause().getMessage());
       }
     });
   }
+
+  /**
+   * Streams the owner's items as a chunked array of the format. The repository
+   * is read in batches and paused whenever the response write queue is full,
+   * so memory use does not depend on the number of items.
+   */
+  private void streamItems(RoutingContext context, String ownerId, ItemFormat format) {
+    HttpServerResponse response = context.response();
+    ReadStream<JsonObject> items = itemRepository.streamByOwner(ownerId, STREAM_BATCH_SIZE);
+
+    response
+      .setChunked(true)
+      .setStatusCode(200)
+      .putHeader("Content-Type", format.contentType())
+      .putHeader("Vary", "Accept");
+    response.closeHandler(v -> {
+      items.endHandler(null);
+      items.handler(null);
+    });
+    response.drainHandler(v -> items.resume());
+
+    ItemStreamEncoder encoder = new ItemStreamEncoder(format);
+    items.exceptionHandler(cause -> {
+      LOG.error(cause.getMessage());
+      if (response.headWritten()) {
+        response.reset();
+      } else {
+        response.setChunked(false).setStatusCode(500).end("Failed to retrieve items");
+      }
+    });
+    items.endHandler(v -> response.end(encoder.end()));
+    items.handler(item -> {
+      response.write(encoder.item(item));
+      if (response.writeQueueFull()) {
+        items.pause();
+      }
+    });
+  }
 }
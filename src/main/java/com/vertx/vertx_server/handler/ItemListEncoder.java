@@ -0,0 +1,118 @@
+package com.vertx.vertx_server.handler;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.vertx.vertx_server.model.Uuids;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes an item listing straight into the bytes of a {@link Buffer}, without
+ * building a {@code JsonArray} or an intermediate {@code String}, in any of the
+ * {@link ItemFormat}s.
+ * <p>
+ * Only the fields in {@link #FIELDS} are written, the same ones Mongo is asked
+ * to project, so a document carrying more fields does not leak them.
+ */
+public final class ItemListEncoder {
+
+  /**
+   * Projection for {@code FindOptions.setFields}.
+   */
+  public static final JsonObject FIELDS = new JsonObject()
+    .put("_id", 0)
+    .put("id", 1)
+    .put("name", 1);
+
+  // {"id":"<36 chars uuid>","name":""}, with room for a short name
+  private static final int ESTIMATED_ITEM_BYTES = 64;
+
+  private ItemListEncoder() {
+  }
+
+  public static Buffer encode(List<JsonObject> items) {
+    return encode(items, ItemFormat.JSON);
+  }
+
+  public static Buffer encode(List<JsonObject> items, ItemFormat format) {
+    ByteBuf bytes = Unpooled.buffer(2 + items.size() * ESTIMATED_ITEM_BYTES);
+    try (JsonGenerator generator = generator(format, bytes)) {
+      generator.writeStartArray();
+      for (JsonObject item : items) {
+        generator.writeStartObject();
+        Object id = item.getValue("id");
+        writeField(generator, "id", Uuids.isBinary(id) ? Uuids.toString(id) : id);
+        writeField(generator, "name", item.getValue("name"));
+        generator.writeEndObject();
+      }
+      generator.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException("Failed to encode item listing: " + e.getMessage());
+    }
+    return Buffer.buffer(bytes);
+  }
+
+  /**
+   * Encodes any JSON value whole, for the responses that are not listings.
+   */
+  public static Buffer encodeValue(Object value, ItemFormat format) {
+    ByteBuf bytes = Unpooled.buffer();
+    try (JsonGenerator generator = generator(format, bytes)) {
+      writeValue(generator, value);
+    } catch (IOException e) {
+      throw new EncodeException("Failed to encode response: " + e.getMessage());
+    }
+    return Buffer.buffer(bytes);
+  }
+
+  static JsonGenerator generator(ItemFormat format, ByteBuf bytes) throws IOException {
+    // ByteBufOutputStream is also a DataOutput, the generator must see the stream
+    OutputStream out = new ByteBufOutputStream(bytes);
+    return format.factory().createGenerator(out);
+  }
+
+  static void writeValue(JsonGenerator generator, Object value) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else if (value instanceof JsonObject) {
+      generator.writeStartObject();
+      for (Map.Entry<String, Object> field : (JsonObject) value) {
+        generator.writeFieldName(field.getKey());
+        writeValue(generator, field.getValue());
+      }
+      generator.writeEndObject();
+    } else if (value instanceof JsonArray) {
+      generator.writeStartArray();
+      for (Object element : (JsonArray) value) {
+        writeValue(generator, element);
+      }
+      generator.writeEndArray();
+    } else if (value instanceof String) {
+      generator.writeString((String) value);
+    } else if (value instanceof Boolean) {
+      generator.writeBoolean((Boolean) value);
+    } else if (value instanceof Integer || value instanceof Long) {
+      generator.writeNumber(((Number) value).longValue());
+    } else if (value instanceof Number) {
+      generator.writeNumber(((Number) value).doubleValue());
+    } else {
+      generator.writeString(value.toString());
+    }
+  }
+
+  private static void writeField(JsonGenerator generator, String name, Object value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    generator.writeStringField(name, value.toString());
+  }
+}
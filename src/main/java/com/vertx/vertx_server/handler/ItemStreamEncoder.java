@@ -0,0 +1,58 @@
+package com.vertx.vertx_server.handler;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+
+/**
+ * Encodes a streamed listing one item at a time, as one array of the
+ * {@link ItemFormat}. A single generator writes the whole array, so separators
+ * and, for Smile, back-references to field names span the chunks; each call
+ * returns the bytes written since the previous one.
+ */
+final class ItemStreamEncoder {
+
+  private final ByteBuf bytes = Unpooled.buffer(256);
+  private final JsonGenerator generator;
+
+  ItemStreamEncoder(ItemFormat format) {
+    try {
+      generator = ItemListEncoder.generator(format, bytes);
+      // goes out with the first item, or with the end of an empty listing
+      generator.writeStartArray();
+    } catch (IOException e) {
+      throw new EncodeException("Failed to start item stream: " + e.getMessage());
+    }
+  }
+
+  Buffer item(JsonObject item) {
+    try {
+      ItemListEncoder.writeValue(generator, item);
+      generator.flush();
+    } catch (IOException e) {
+      throw new EncodeException("Failed to encode item: " + e.getMessage());
+    }
+    return take();
+  }
+
+  Buffer end() {
+    try {
+      generator.writeEndArray();
+      generator.close();
+    } catch (IOException e) {
+      throw new EncodeException("Failed to end item stream: " + e.getMessage());
+    }
+    return take();
+  }
+
+  private Buffer take() {
+    Buffer chunk = Buffer.buffer(bytes.copy());
+    bytes.clear();
+    return chunk;
+  }
+}
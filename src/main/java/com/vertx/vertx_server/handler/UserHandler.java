@@ -1,16 +1,19 @@
 package com.vertx.vertx_server.handler;
 
+import com.vertx.vertx_server.cache.LoginFilter;
+import com.vertx.vertx_server.model.User;
+import com.vertx.vertx_server.repository.DuplicateLoginException;
+import com.vertx.vertx_server.repository.UserRepository;
+import com.vertx.vertx_server.security.CredentialHasher;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.JWTOptions;
 import io.vertx.ext.auth.jwt.JWTAuth;
-import io.vertx.ext.mongo.MongoClient;
 import io.vertx.ext.web.RoutingContext;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.concurrent.RejectedExecutionException;
 
 public class UserHandler {
 
@@ -18,96 +21,88 @@ public class UserHandler {
   private static final String ID = "id";
   private static final String LOGIN = "login";
   private static final String PASSWORD = "password";
-  private static final String MONGODB_USERS_COLLECTION = "users";
 
-  private final MongoClient mongoClient;
+  private final UserRepository userRepository;
   private final JWTAuth jwtAuth;
+  private final CredentialHasher credentialHasher;
+  private final LoginFilter loginFilter;
 
+  /**
+   * @param loginFilter answers logins of unknown users without a lookup, or
+   *                    {@code null} to look every login up
+   */
   public UserHandler(
-    MongoClient mongoClient,
-    JWTAuth jwtAuth
+    UserRepository userRepository,
+    JWTAuth jwtAuth,
+    CredentialHasher credentialHasher,
+    LoginFilter loginFilter
   ) {
-    this.mongoClient = mongoClient;
+    this.userRepository = userRepository;
     this.jwtAuth = jwtAuth;
+    this.credentialHasher = credentialHasher;
+    this.loginFilter = loginFilter;
   }
 
+  /**
+   * Expects a body accepted by {@code RequestValidator.REGISTER}.
+   */
   public void handleRegister(RoutingContext context) {
-    LOG.info("Initiating user registration.");
+    LOG.debug("Initiating user registration.");
     JsonObject body = context.getBodyAsJson();
     String login = body.getString(LOGIN);
     String password = body.getString(PASSWORD);
 
-    if (login == null || password == null) {
-      context.response().setStatusCode(400).end("Must provide a login and/or password.");
-      return;
-    }
-
-    if (login.isEmpty() || password.isEmpty()) {
-      context.response().setStatusCode(400).end("Must provide a login and/or password.");
-      return;
-    }
-
-    if (!isEmail(login)) {
-      context.response().setStatusCode(400).end("Must provide login as email.");
-      return;
-    }
-    alreadyExistsCheck(login, context);
-    LOG.info("User login/password validated.");
-
-    String hashedPassword = hashPassword(password);
+    credentialHasher.hash(password).onComplete(hashing -> {
+      if (hashing.failed()) {
+        handleCredentialFailure(context, hashing.cause());
+        return;
+      }
 
-    JsonObject newUser = new JsonObject()
-      .put(ID, UUID.randomUUID().toString())
-      .put(LOGIN, login)
-      .put(PASSWORD, hashedPassword);
+      JsonObject newUser = new User(UUID.randomUUID(), login, hashing.result()).toJson();
 
-    LOG.info("Saving to database");
-    saveToMongoDb(context, newUser);
+      LOG.debug("Saving to database");
+      saveUser(context, newUser);
+    });
   }
 
+  /**
+   * Expects a body accepted by {@code RequestValidator.LOGIN}.
+   */
   public void handleLogin(RoutingContext context) {
     JsonObject body = context.getBodyAsJson();
     String login = body.getString(LOGIN);
     String password = body.getString(PASSWORD);
 
-    JsonObject query = new JsonObject().put(LOGIN, login);
-    authenticateUser(context, password, query);
-  }
-
-  private String hashPassword(String password) {
-    return BCrypt.hashpw(password, BCrypt.gensalt());
-  }
-
-  private boolean isEmail(String email) {
-    Pattern pattern = Pattern.compile("[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,4}");
-    return pattern.matcher(email).matches();
-  }
-
-  private void alreadyExistsCheck(String login, RoutingContext context) {
-    JsonObject query = new JsonObject()
-      .put("login", login);
-    mongoClient.findOne(MONGODB_USERS_COLLECTION, query, null, lookup -> {
-      if (lookup.result() != null) {
-        context.response().setStatusCode(400).end("User already exist.");
-      };
-    });
+    if (loginFilter != null && !loginFilter.mightExist(login)) {
+      context.response().setStatusCode(401).end("Invalid credentials");
+      return;
+    }
+    authenticateUser(context, login, password);
   }
 
-  private void authenticateUser(RoutingContext context, String password, JsonObject query) {
-    mongoClient.findOne(MONGODB_USERS_COLLECTION, query, null, lookup -> {
+  private void authenticateUser(RoutingContext context, String login, String password) {
+    userRepository.findByLogin(login).onComplete(lookup -> {
       if (lookup.succeeded()) {
         JsonObject user = lookup.result();
-        if (user != null && BCrypt.checkpw(password, user.getString(PASSWORD))) {
-          String token = getToken(user);
-
-          context.response()
-            .putHeader("Content-Type", "application/json")
-            .end(new JsonObject().put("token", token).encode());
-
-          LOG.info("User logged in.");
-        } else {
+        if (user == null) {
           context.response().setStatusCode(401).end("Invalid credentials");
+          return;
         }
+        credentialHasher.verify(password, user.getString(PASSWORD)).onComplete(verification -> {
+          if (verification.failed()) {
+            handleCredentialFailure(context, verification.cause());
+          } else if (verification.result()) {
+            String token = getToken(user);
+
+            context.response()
+              .putHeader("Content-Type", "application/json")
+              .end(new JsonObject().put("token", token).encode());
+
+            LOG.debug("User logged in.");
+          } else {
+            context.response().setStatusCode(401).end("Invalid credentials");
+          }
+        });
       } else {
         context.response().setStatusCode(500).end(lookup.cause().getMessage());
         LOG.error(lookup.cause().getMessage());
@@ -115,17 +110,39 @@ public class UserHandler {
     });
   }
 
+  private void handleCredentialFailure(RoutingContext context, Throwable cause) {
+    if (cause instanceof RejectedExecutionException) {
+      context.response()
+        .setStatusCode(503)
+        .putHeader("Retry-After", String.valueOf(credentialHasher.getRetryAfterSeconds()))
+        .end("Server is busy, try again later.");
+      LOG.warn(cause.getMessage());
+    } else {
+      context.response().setStatusCode(500).end("Credential processing failed");
+      LOG.error(cause.getMessage());
+    }
+  }
+
   private String getToken(JsonObject user) {
     return jwtAuth.generateToken(
       new JsonObject().put("ownerId", user.getString(ID)),
       new JWTOptions().setExpiresInSeconds(60 * 5)
     );
   }
-  private void saveToMongoDb(RoutingContext context, JsonObject newUser) {
-    mongoClient.save(MONGODB_USERS_COLLECTION, newUser, res -> {
+  /**
+   * Inserts the user without looking the login up first, the repository
+   * rejects a login that is taken.
+   */
+  private void saveUser(RoutingContext context, JsonObject newUser) {
+    userRepository.insert(newUser).onComplete(res -> {
       if (res.succeeded()) {
+        if (loginFilter != null) {
+          loginFilter.registered(newUser.getString(LOGIN));
+        }
         context.response().setStatusCode(201).end("Registering successfull.");
-        LOG.info("Registering successfull.");
+        LOG.debug("Registering successfull.");
+      } else if (res.cause() instanceof DuplicateLoginException) {
+        context.response().setStatusCode(400).end("User already exist.");
       } else {
         context.response().setStatusCode(500).end("User registration failed");
         LOG.error(res.cause().getMessage());
@@ -0,0 +1,47 @@
+package com.vertx.vertx_server.http;
+
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Sends responses shorter than {@code minBytes} uncompressed, where the gzip
+ * header and the deflate work cost more than the bytes they save.
+ * <p>
+ * The Vert.x server has no size threshold of its own, but it skips responses
+ * marked with the {@code identity} content encoding and strips that marker
+ * before writing the headers. Only responses whose length is known when the
+ * headers are written are checked, so streamed listings are always
+ * compressed.
+ */
+public class CompressionThresholdHandler implements Handler<RoutingContext> {
+
+  private final long minBytes;
+
+  public CompressionThresholdHandler(long minBytes) {
+    this.minBytes = minBytes;
+  }
+
+  @Override
+  public void handle(RoutingContext context) {
+    context.addHeadersEndHandler(v -> {
+      MultiMap headers = context.response().headers();
+      String contentLength = headers.get(HttpHeaders.CONTENT_LENGTH);
+      if (contentLength != null && !headers.contains(HttpHeaders.CONTENT_ENCODING)
+        && length(contentLength) < minBytes) {
+        headers.set(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
+      }
+    });
+    context.next();
+  }
+
+  // a length that cannot be read is left to the server, as an unknown one is
+  private static long length(String contentLength) {
+    try {
+      return Long.parseLong(contentLength);
+    } catch (NumberFormatException e) {
+      return Long.MAX_VALUE;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.vertx.vertx_server.http;
+
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the HTTP server options from the {@code http.server} configuration.
+ * <p>
+ * Responses are compressed with gzip or deflate when the client accepts it,
+ * and the HTTP/2 stream and connection windows are sized so that a large item
+ * listing is not throttled by the 64 KiB default. Vert.x serves HTTP/2 in
+ * clear text to clients that upgrade or send the prior knowledge preface. The TCP
+ * options {@code fast.open}, {@code quick.ack} and {@code reuse.port} only
+ * take effect on the native transport and are ignored by the JDK one.
+ */
+public final class HttpServerTuning {
+
+  private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+  private static final int DEFAULT_COMPRESSION_LEVEL = 6;
+  private static final int DEFAULT_INITIAL_WINDOW_BYTES = 1024 * 1024;
+  private static final int DEFAULT_CONNECTION_WINDOW_BYTES = 4 * 1024 * 1024;
+  private static final long DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+
+  private HttpServerTuning() {
+  }
+
+  public static HttpServerOptions options(JsonObject config) {
+    JsonObject compression = compression(config);
+    JsonObject http2 = config.getJsonObject("http2", new JsonObject());
+    JsonObject tcp = config.getJsonObject("tcp", new JsonObject());
+    HttpServerOptions options = new HttpServerOptions()
+      .setCompressionSupported(compression.getBoolean("enabled", false))
+      .setCompressionLevel(compression.getInteger("level", DEFAULT_COMPRESSION_LEVEL))
+      .setInitialSettings(new Http2Settings()
+        .setInitialWindowSize(http2.getInteger("initial.window.bytes", DEFAULT_INITIAL_WINDOW_BYTES))
+        .setMaxConcurrentStreams(http2.getLong("max.concurrent.streams", DEFAULT_MAX_CONCURRENT_STREAMS)))
+      .setHttp2ConnectionWindowSize(http2.getInteger("connection.window.bytes", DEFAULT_CONNECTION_WINDOW_BYTES))
+      .setIdleTimeout(config.getInteger("idle.timeout.seconds", DEFAULT_IDLE_TIMEOUT_SECONDS))
+      .setIdleTimeoutUnit(TimeUnit.SECONDS);
+    options
+      .setTcpNoDelay(tcp.getBoolean("no.delay", true))
+      .setTcpFastOpen(tcp.getBoolean("fast.open", false))
+      .setTcpQuickAck(tcp.getBoolean("quick.ack", false))
+      .setReusePort(tcp.getBoolean("reuse.port", false));
+    return options;
+  }
+
+  /**
+   * Smallest response body worth compressing, {@code 0} when compression is
+   * disabled or every response is compressed.
+   */
+  public static int compressionMinBytes(JsonObject config) {
+    JsonObject compression = compression(config);
+    return compression.getBoolean("enabled", false) ? compression.getInteger("min.bytes", 0) : 0;
+  }
+
+  private static JsonObject compression(JsonObject config) {
+    return config.getJsonObject("compression", new JsonObject());
+  }
+}
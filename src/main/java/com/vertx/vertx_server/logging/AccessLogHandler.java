@@ -0,0 +1,98 @@
+package com.vertx.vertx_server.logging;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tags every request with a request id and writes sampled JSON access log
+ * lines to the {@code access} logger.
+ * <p>
+ * Server errors and requests slower than {@code slow.request.ms} are always
+ * logged, other requests with probability {@code sample.rate}. Independently
+ * of sampling, at most {@code max.per.second} lines are written per second so
+ * a burst of errors cannot flood the appender. Each verticle instance owns
+ * its handler, so the state is only touched from one event loop.
+ */
+public class AccessLogHandler implements Handler<RoutingContext> {
+
+  public static final String REQUEST_ID = "requestId";
+  static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+  private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access");
+  private static final double DEFAULT_SAMPLE_RATE = 0.01;
+  private static final int DEFAULT_MAX_PER_SECOND = 100;
+  private static final long DEFAULT_SLOW_REQUEST_MS = 500;
+
+  private final double sampleRate;
+  private final int maxPerSecond;
+  private final long slowRequestMs;
+
+  private long currentSecond;
+  private int writtenThisSecond;
+  private long suppressed;
+
+  public AccessLogHandler(JsonObject config) {
+    this.sampleRate = config.getDouble("sample.rate", DEFAULT_SAMPLE_RATE);
+    this.maxPerSecond = config.getInteger("max.per.second", DEFAULT_MAX_PER_SECOND);
+    this.slowRequestMs = config.getLong("slow.request.ms", DEFAULT_SLOW_REQUEST_MS);
+  }
+
+  @Override
+  public void handle(RoutingContext context) {
+    long startedAt = System.nanoTime();
+    HttpServerRequest request = context.request();
+    String requestId = request.getHeader(REQUEST_ID_HEADER);
+    if (requestId == null) {
+      requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+    context.put(REQUEST_ID, requestId);
+    context.response().putHeader(REQUEST_ID_HEADER, requestId);
+
+    String id = requestId;
+    context.addBodyEndHandler(v -> {
+      HttpServerResponse response = context.response();
+      long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+      if (shouldLog(response.getStatusCode(), durationMs, System.currentTimeMillis())) {
+        ACCESS_LOG.info(new JsonObject()
+          .put("requestId", id)
+          .put("method", request.method().name())
+          .put("path", request.path())
+          .put("status", response.getStatusCode())
+          .put("durationMs", durationMs)
+          .put("bytes", response.bytesWritten())
+          .encode());
+      }
+    });
+    context.next();
+  }
+
+  boolean shouldLog(int status, long durationMs, long nowMs) {
+    boolean important = status >= 500 || durationMs >= slowRequestMs;
+    if (!important && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+      return false;
+    }
+    long second = nowMs / 1000;
+    if (second != currentSecond) {
+      if (suppressed > 0) {
+        ACCESS_LOG.warn(new JsonObject().put("suppressed", suppressed).encode());
+      }
+      currentSecond = second;
+      writtenThisSecond = 0;
+      suppressed = 0;
+    }
+    if (writtenThisSecond >= maxPerSecond) {
+      suppressed++;
+      return false;
+    }
+    writtenThisSecond++;
+    return true;
+  }
+}
@@ -0,0 +1,46 @@
+package com.vertx.vertx_server.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.metrics.MetricsOptions;
+import io.vertx.micrometer.Label;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.micrometer.VertxPrometheusOptions;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import java.util.EnumSet;
+
+/**
+ * Entry point to the Micrometer registry Vert.x publishes its metrics to.
+ * <p>
+ * HTTP server metrics are labelled with the matched route, method and status
+ * code and published as Prometheus histograms, so route percentiles can be
+ * aggregated across instances. When metrics are disabled the application
+ * meters are recorded into an empty registry and discarded.
+ */
+public final class AppMetrics {
+
+  private static final MeterRegistry DISABLED = new CompositeMeterRegistry();
+
+  private AppMetrics() {
+  }
+
+  public static MetricsOptions options(JsonObject config) {
+    return new MicrometerMetricsOptions()
+      .setEnabled(config.getBoolean("enabled", false))
+      .setLabels(EnumSet.of(Label.HTTP_ROUTE, Label.HTTP_METHOD, Label.HTTP_CODE))
+      .setPrometheusOptions(new VertxPrometheusOptions()
+        .setEnabled(true)
+        .setPublishQuantiles(true));
+  }
+
+  public static MeterRegistry registry() {
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    return registry == null ? DISABLED : registry;
+  }
+
+  static boolean isDisabled(MeterRegistry registry) {
+    return registry == DISABLED;
+  }
+}
@@ -0,0 +1,102 @@
+package com.vertx.vertx_server.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how late a periodic timer fires on the calling event loop.
+ * <p>
+ * The delay is published as the {@code eventloop.lag} gauge and every
+ * check delayed by more than {@code eventloop.blocked.threshold.ms} counts
+ * towards {@code eventloop.blocked}. Vert.x only logs blocked threads,
+ * so the counter is the metric counterpart of those warnings. Must be started
+ * from the event loop it should watch.
+ * <p>
+ * Every verticle instance calls {@link #start}, but an event loop is watched
+ * by a single monitor kept per thread name in a local map: several instances
+ * sharing an event loop would otherwise count each blocked check once per
+ * instance. The verticle whose call started the timer gets the monitor back and
+ * calls {@link #stop} when it stops; the next verticle started on that event
+ * loop starts it again.
+ */
+public class EventLoopMonitor implements Shareable {
+
+  private static final String SHARED_MAP = "event-loop-monitors";
+
+  private static final long DEFAULT_CHECK_INTERVAL_MS = 100;
+  private static final long DEFAULT_BLOCKED_THRESHOLD_MS = 100;
+
+  private final AtomicLong lagMs = new AtomicLong();
+  private final Counter blocked;
+  private final long intervalNanos;
+  private final long blockedThresholdMs;
+  private long lastCheckAt;
+  private long timer = -1;
+
+  private EventLoopMonitor(MeterRegistry registry, String thread, long intervalMs, long blockedThresholdMs) {
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    this.blockedThresholdMs = blockedThresholdMs;
+    Gauge.builder("eventloop.lag", lagMs, AtomicLong::get)
+      .tag("thread", thread)
+      .baseUnit("milliseconds")
+      .strongReference(true)
+      .register(registry);
+    this.blocked = Counter.builder("eventloop.blocked")
+      .tag("thread", thread)
+      .register(registry);
+  }
+
+  /**
+   * @return the monitor when this call started its timer, {@code null} when
+   * the event loop is watched already or metrics are disabled
+   */
+  public static EventLoopMonitor start(Vertx vertx, JsonObject config) {
+    if (!vertx.isMetricsEnabled()) {
+      return null;
+    }
+    long intervalMs = config.getLong("eventloop.check.interval.ms", DEFAULT_CHECK_INTERVAL_MS);
+    EventLoopMonitor monitor = vertx.sharedData()
+      .<String, EventLoopMonitor>getLocalMap(SHARED_MAP)
+      .computeIfAbsent(Thread.currentThread().getName(), thread -> new EventLoopMonitor(
+        AppMetrics.registry(),
+        thread,
+        intervalMs,
+        config.getLong("eventloop.blocked.threshold.ms", DEFAULT_BLOCKED_THRESHOLD_MS)
+      ));
+    return monitor.watch(vertx) ? monitor : null;
+  }
+
+  /**
+   * Called from the watched event loop, like {@link #start}.
+   */
+  public void stop(Vertx vertx) {
+    vertx.cancelTimer(timer);
+    timer = -1;
+  }
+
+  private boolean watch(Vertx vertx) {
+    if (timer != -1) {
+      return false;
+    }
+    lastCheckAt = System.nanoTime();
+    timer = vertx.setPeriodic(TimeUnit.NANOSECONDS.toMillis(intervalNanos), id -> check());
+    return true;
+  }
+
+  private void check() {
+    long now = System.nanoTime();
+    long lag = Math.max(0, TimeUnit.NANOSECONDS.toMillis(now - lastCheckAt - intervalNanos));
+    lastCheckAt = now;
+    lagMs.set(lag);
+    if (lag >= blockedThresholdMs) {
+      blocked.increment();
+    }
+  }
+}
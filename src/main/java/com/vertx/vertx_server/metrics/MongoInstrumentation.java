@@ -0,0 +1,104 @@
+package com.vertx.vertx_server.metrics;
+
+import com.vertx.vertx_server.tracing.AppTracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Times Mongo calls into the {@code mongo.operations} timer, tagged with the
+ * collection, the operation and whether it succeeded, and traces each call as
+ * a client span carrying the number of documents returned or written.
+ */
+public final class MongoInstrumentation {
+
+  private static final String TIMER = "mongo.operations";
+
+  private MongoInstrumentation() {
+  }
+
+  /**
+   * Wraps the result handler of a callback style call. The timer starts when
+   * this method is called, so it has to be invoked in the argument list of the
+   * Mongo call itself.
+   */
+  public static <T> Handler<AsyncResult<T>> instrument(String collection, String operation, Handler<AsyncResult<T>> handler) {
+    MeterRegistry registry = AppMetrics.registry();
+    if (AppMetrics.isDisabled(registry) && !AppTracing.isEnabled()) {
+      return handler;
+    }
+    Timer.Sample sample = Timer.start(registry);
+    Span span = startSpan(collection, operation);
+    return res -> {
+      finish(registry, sample, span, collection, operation, res);
+      handler.handle(res);
+    };
+  }
+
+  public static <T> Future<T> instrument(String collection, String operation, Supplier<Future<T>> call) {
+    MeterRegistry registry = AppMetrics.registry();
+    if (AppMetrics.isDisabled(registry) && !AppTracing.isEnabled()) {
+      return call.get();
+    }
+    Timer.Sample sample = Timer.start(registry);
+    Span span = startSpan(collection, operation);
+    return call.get().andThen(res -> finish(registry, sample, span, collection, operation, res));
+  }
+
+  private static Span startSpan(String collection, String operation) {
+    Span span = AppTracing.startSpan("mongo " + operation + " " + collection, SpanKind.CLIENT);
+    span.setAttribute("db.system", "mongodb");
+    span.setAttribute("db.operation", operation);
+    span.setAttribute("db.mongodb.collection", collection);
+    return span;
+  }
+
+  private static <T> void finish(
+    MeterRegistry registry,
+    Timer.Sample sample,
+    Span span,
+    String collection,
+    String operation,
+    AsyncResult<T> res
+  ) {
+    sample.stop(timer(registry, collection, operation, res.succeeded()));
+    if (res.succeeded()) {
+      span.setAttribute("db.result.count", resultCount(res.result()));
+    } else {
+      span.recordException(res.cause());
+      span.setStatus(StatusCode.ERROR);
+    }
+    span.end();
+  }
+
+  private static long resultCount(Object result) {
+    if (result == null) {
+      return 0;
+    }
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    }
+    if (result instanceof MongoClientBulkWriteResult) {
+      return ((MongoClientBulkWriteResult) result).getInsertedCount();
+    }
+    return 1;
+  }
+
+  private static Timer timer(MeterRegistry registry, String collection, String operation, boolean succeeded) {
+    return Timer.builder(TIMER)
+      .tag("collection", collection)
+      .tag("operation", operation)
+      .tag("outcome", succeeded ? "success" : "failure")
+      .publishPercentileHistogram()
+      .register(registry);
+  }
+}
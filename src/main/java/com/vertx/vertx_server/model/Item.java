@@ -1,27 +1,67 @@
 package com.vertx.vertx_server.model;
 
+import io.vertx.core.json.JsonObject;
+
 import java.util.UUID;
 
+/**
+ * An item, with its UUIDs kept as their two halves: an item is one object
+ * instead of three, and 48 bytes instead of 88 on a 64-bit JVM with
+ * compressed oops, name excluded.
+ * <p>
+ * {@link #toJson()} and {@link #fromJson(JsonObject)} are written by hand so
+ * that no Jackson reflection runs per item.
+ */
 public class Item {
-  private UUID id;
-  private UUID owner;
-  private String name;
+
+  private static final String ID = "id";
+  private static final String OWNER = "owner";
+  private static final String NAME = "name";
+
+  private final long idMostSigBits;
+  private final long idLeastSigBits;
+  private final long ownerMostSigBits;
+  private final long ownerLeastSigBits;
+  private final String name;
 
   public Item(UUID id, UUID owner, String name) {
-    this.id = id;
-    this.owner = owner;
+    this(id.getMostSignificantBits(), id.getLeastSignificantBits(),
+      owner.getMostSignificantBits(), owner.getLeastSignificantBits(), name);
+  }
+
+  public Item(long idMostSigBits, long idLeastSigBits, long ownerMostSigBits, long ownerLeastSigBits, String name) {
+    this.idMostSigBits = idMostSigBits;
+    this.idLeastSigBits = idLeastSigBits;
+    this.ownerMostSigBits = ownerMostSigBits;
+    this.ownerLeastSigBits = ownerLeastSigBits;
     this.name = name;
   }
 
+  public static Item fromJson(JsonObject json) {
+    UUID id = Uuids.fromJson(json.getValue(ID));
+    UUID owner = Uuids.fromJson(json.getValue(OWNER));
+    return new Item(id, owner, json.getString(NAME));
+  }
+
   public UUID getId() {
-    return id;
+    return new UUID(idMostSigBits, idLeastSigBits);
   }
 
   public UUID getOwner() {
-    return owner;
+    return new UUID(ownerMostSigBits, ownerLeastSigBits);
   }
 
   public String getName() {
     return name;
   }
+
+  /**
+   * The document of the item, with its UUIDs as strings.
+   */
+  public JsonObject toJson() {
+    return new JsonObject()
+      .put(ID, Uuids.toString(idMostSigBits, idLeastSigBits))
+      .put(OWNER, Uuids.toString(ownerMostSigBits, ownerLeastSigBits))
+      .put(NAME, name);
+  }
 }
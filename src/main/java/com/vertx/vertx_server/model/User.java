@@ -1,25 +1,38 @@
 package com.vertx.vertx_server.model;
 
+import io.vertx.core.json.JsonObject;
+
 import java.util.UUID;
 
+/**
+ * A user, with its UUID kept as its two halves. {@link #toJson()} and
+ * {@link #fromJson(JsonObject)} are written by hand so that no Jackson
+ * reflection runs per user.
+ */
 public class User {
 
-  private UUID id;
-  private String login;
-  private String password;
+  private static final String ID = "id";
+  private static final String LOGIN = "login";
+  private static final String PASSWORD = "password";
+
+  private final long idMostSigBits;
+  private final long idLeastSigBits;
+  private final String login;
+  private final String password;
 
-  public User(String login, String password) {
-    this.login = login;
-    this.password = password;
-  }
   public User(UUID id, String login, String password) {
-    this.id = id;
+    this.idMostSigBits = id.getMostSignificantBits();
+    this.idLeastSigBits = id.getLeastSignificantBits();
     this.login = login;
     this.password = password;
   }
 
+  public static User fromJson(JsonObject json) {
+    return new User(Uuids.fromJson(json.getValue(ID)), json.getString(LOGIN), json.getString(PASSWORD));
+  }
+
   public UUID getId() {
-    return id;
+    return new UUID(idMostSigBits, idLeastSigBits);
   }
 
   public String getLogin() {
@@ -29,4 +42,15 @@ public class User {
   public String getPassword() {
     return password;
   }
+
+  /**
+   * The document of the user, with the hashed password and its UUID as a
+   * string.
+   */
+  public JsonObject toJson() {
+    return new JsonObject()
+      .put(ID, Uuids.toString(idMostSigBits, idLeastSigBits))
+      .put(LOGIN, login)
+      .put(PASSWORD, password);
+  }
 }
@@ -0,0 +1,82 @@
+package com.vertx.vertx_server.model;
+
+import io.vertx.core.json.JsonObject;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Conversions of UUIDs between their two halves, their string form and the
+ * BSON binary subtype 4 that the Mongo client writes for a
+ * {@code {"$binary": <16 bytes>, "$type": 4}} value. The binary form takes 16
+ * bytes in a document and in an index, against 36 for the string.
+ */
+public final class Uuids {
+
+  public static final String BINARY = "$binary";
+  public static final String TYPE = "$type";
+  public static final int SUBTYPE_UUID = 4;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private Uuids() {
+  }
+
+  /**
+   * Same result as {@code new UUID(most, least).toString()}.
+   */
+  public static String toString(long mostSigBits, long leastSigBits) {
+    char[] chars = new char[36];
+    hex(chars, 0, mostSigBits >>> 32, 8);
+    chars[8] = '-';
+    hex(chars, 9, mostSigBits >>> 16, 4);
+    chars[13] = '-';
+    hex(chars, 14, mostSigBits, 4);
+    chars[18] = '-';
+    hex(chars, 19, leastSigBits >>> 48, 4);
+    chars[23] = '-';
+    hex(chars, 24, leastSigBits, 12);
+    return new String(chars);
+  }
+
+  public static JsonObject toBinary(UUID uuid) {
+    byte[] bytes = ByteBuffer.allocate(16)
+      .putLong(uuid.getMostSignificantBits())
+      .putLong(uuid.getLeastSignificantBits())
+      .array();
+    return new JsonObject().put(BINARY, bytes).put(TYPE, SUBTYPE_UUID);
+  }
+
+  public static boolean isBinary(Object value) {
+    return value instanceof JsonObject && ((JsonObject) value).containsKey(BINARY);
+  }
+
+  /**
+   * Reads a UUID stored as a string or as a binary value.
+   */
+  public static UUID fromJson(Object value) {
+    if (isBinary(value)) {
+      ByteBuffer bytes = ByteBuffer.wrap(((JsonObject) value).getBinary(BINARY));
+      return new UUID(bytes.getLong(), bytes.getLong());
+    }
+    return UUID.fromString((String) value);
+  }
+
+  /**
+   * String form of a UUID stored as a string or as a binary value.
+   */
+  public static String toString(Object value) {
+    if (isBinary(value)) {
+      ByteBuffer bytes = ByteBuffer.wrap(((JsonObject) value).getBinary(BINARY));
+      return toString(bytes.getLong(), bytes.getLong());
+    }
+    return (String) value;
+  }
+
+  private static void hex(char[] chars, int offset, long value, int digits) {
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      chars[i] = HEX[(int) value & 0xf];
+      value >>>= 4;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.vertx.vertx_server.mongo;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.vertx.vertx_server.metrics.AppMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.MongoClient;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Groups single-document inserts that arrive within {@code max.latency.ms}, or
+ * until {@code max.batch.size} documents are pending, into one unordered
+ * bulk write. Every caller still gets its own result.
+ * <p>
+ * The size of every bulk write is recorded in the
+ * {@code mongo.coalesce.batch.size} summary tagged with the collection; its
+ * mean over {@code max.batch.size} is the fill ratio of the batches.
+ * <p>
+ * An instance is meant to be used from the event loop of the verticle that
+ * created it, so pending inserts need no locking.
+ */
+public class InsertCoalescer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(InsertCoalescer.class);
+  private static final String MONGO_ID = "_id";
+  private static final long DEFAULT_MAX_LATENCY_MS = 2;
+  private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+  private final Vertx vertx;
+  private final MongoClient mongoClient;
+  private final String collection;
+  private final long maxLatencyMs;
+  private final int maxBatchSize;
+
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder documents = new LongAdder();
+  private final DistributionSummary batchSizes;
+
+  private List<JsonObject> pendingDocuments = new ArrayList<>();
+  private List<Promise<String>> pendingPromises = new ArrayList<>();
+  private long flushTimer = -1;
+
+  public InsertCoalescer(Vertx vertx, MongoClient mongoClient, String collection, JsonObject config) {
+    this.vertx = vertx;
+    this.mongoClient = mongoClient;
+    this.collection = collection;
+    this.maxLatencyMs = Math.max(1, config.getLong("max.latency.ms", DEFAULT_MAX_LATENCY_MS));
+    this.maxBatchSize = config.getInteger("max.batch.size", DEFAULT_MAX_BATCH_SIZE);
+    this.batchSizes = DistributionSummary.builder("mongo.coalesce.batch.size")
+      .tag("collection", collection)
+      .baseUnit("documents")
+      .publishPercentileHistogram()
+      .register(AppMetrics.registry());
+  }
+
+  /**
+   * Queues the document for insertion and returns its {@code _id} once the
+   * bulk write it ended up in has completed.
+   */
+  public Future<String> insert(JsonObject document) {
+    if (document.getValue(MONGO_ID) == null) {
+      document.put(MONGO_ID, new ObjectId().toHexString());
+    }
+    Promise<String> promise = Promise.promise();
+    pendingDocuments.add(document);
+    pendingPromises.add(promise);
+
+    if (pendingDocuments.size() >= maxBatchSize) {
+      flush();
+    } else if (flushTimer == -1) {
+      flushTimer = vertx.setTimer(maxLatencyMs, id -> {
+        flushTimer = -1;
+        flush();
+      });
+    }
+    return promise.future();
+  }
+
+  public JsonObject metrics() {
+    long batchCount = batches.sum();
+    long documentCount = documents.sum();
+    return new JsonObject()
+      .put("batches", batchCount)
+      .put("documents", documentCount)
+      .put("fillRatio", batchCount == 0 ? 0 : (double) documentCount / (batchCount * maxBatchSize));
+  }
+
+  private void flush() {
+    if (flushTimer != -1) {
+      vertx.cancelTimer(flushTimer);
+      flushTimer = -1;
+    }
+    if (pendingDocuments.isEmpty()) {
+      return;
+    }
+    List<JsonObject> batch = pendingDocuments;
+    List<Promise<String>> promises = pendingPromises;
+    pendingDocuments = new ArrayList<>();
+    pendingPromises = new ArrayList<>();
+    batches.increment();
+    documents.add(batch.size());
+    batchSizes.record(batch.size());
+
+    List<BulkOperation> operations = new ArrayList<>(batch.size());
+    for (JsonObject document : batch) {
+      operations.add(BulkOperation.createInsert(document));
+    }
+    mongoClient.bulkWriteWithOptions(collection, operations, new BulkWriteOptions(false)).onComplete(res -> {
+      Throwable[] failures = new Throwable[batch.size()];
+      if (res.failed()) {
+        LOG.error(res.cause().getMessage());
+        if (res.cause() instanceof MongoBulkWriteException) {
+          for (BulkWriteError error : ((MongoBulkWriteException) res.cause()).getWriteErrors()) {
+            failures[error.getIndex()] = new IllegalStateException(error.getMessage());
+          }
+        } else {
+          Arrays.fill(failures, res.cause());
+        }
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        if (failures[i] == null) {
+          promises.get(i).complete(batch.get(i).getString(MONGO_ID));
+        } else {
+          promises.get(i).fail(failures[i]);
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,165 @@
+package com.vertx.vertx_server.mongo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.IndexOptions;
+import io.vertx.ext.mongo.MongoClient;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the indexes the handlers rely on and reports which of them exist.
+ * <p>
+ * Startup fails when the unique login index is still missing after
+ * creation, for example because existing duplicate logins prevent it from
+ * being built: registration relies on it to reject a login taken twice. With
+ * {@code required} set, the other indexes are mandatory as well. With {@code slow.query.ms} set, the Mongo
+ * profiler is enabled and collection scans slower than that threshold are
+ * logged every {@code slow.query.check.interval.ms}.
+ */
+public class MongoIndexBootstrapper {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MongoIndexBootstrapper.class);
+  private static final String PROFILE_COLLECTION = "system.profile";
+  private static final long DEFAULT_CHECK_INTERVAL_MS = 60_000;
+  private static final int SLOW_QUERY_REPORT_LIMIT = 50;
+
+  static final List<IndexDefinition> INDEXES = List.of(
+    new IndexDefinition("users", "login_unique", new JsonObject().put("login", 1), true, true),
+    new IndexDefinition("items", "owner_id", new JsonObject().put("owner", 1).put("_id", 1), false, false)
+  );
+
+  private final Vertx vertx;
+  private final MongoClient mongoClient;
+  private final boolean create;
+  private final boolean required;
+  private final Long slowQueryMs;
+  private final long checkIntervalMs;
+
+  private JsonObject lastProfiledAt = new JsonObject().put("$date", Instant.now().toString());
+
+  public MongoIndexBootstrapper(Vertx vertx, MongoClient mongoClient, JsonObject config) {
+    this.vertx = vertx;
+    this.mongoClient = mongoClient;
+    this.create = config.getBoolean("create", true);
+    this.required = config.getBoolean("required", false);
+    this.slowQueryMs = config.getLong("slow.query.ms");
+    this.checkIntervalMs = config.getLong("slow.query.check.interval.ms", DEFAULT_CHECK_INTERVAL_MS);
+  }
+
+  /**
+   * Creates the missing indexes and completes with the index names found per
+   * collection. Fails when a mandatory index is missing, or any index when
+   * indexes are required.
+   */
+  public Future<JsonObject> ensureIndexes() {
+    List<Future<Void>> creations = new ArrayList<>();
+    if (create) {
+      for (IndexDefinition index : INDEXES) {
+        creations.add(mongoClient.createIndexWithOptions(index.collection, index.key, index.options())
+          .onFailure(cause -> LOG.error("Could not create index " + index.name + ": " + cause.getMessage())));
+      }
+    }
+    return Future.join(creations)
+      .transform(ignored -> reportIndexes())
+      .compose(report -> {
+        List<String> missing = missingIndexes(report, false);
+        if (missing.isEmpty()) {
+          LOG.info("Mongo indexes in place: " + report.encode());
+          return Future.succeededFuture(report);
+        }
+        LOG.warn("Mongo indexes missing: " + missing);
+        List<String> missingRequired = required ? missing : missingIndexes(report, true);
+        return missingRequired.isEmpty()
+          ? Future.succeededFuture(report)
+          : Future.failedFuture(new IllegalStateException("Required Mongo indexes missing: " + missingRequired));
+      })
+      .onSuccess(report -> startSlowQueryMonitor());
+  }
+
+  private Future<JsonObject> reportIndexes() {
+    JsonObject report = new JsonObject();
+    List<Future<JsonArray>> listings = new ArrayList<>();
+    for (String collection : List.of("users", "items")) {
+      listings.add(mongoClient.listIndexes(collection).onSuccess(indexes -> {
+        JsonArray names = new JsonArray();
+        for (int i = 0; i < indexes.size(); i++) {
+          names.add(indexes.getJsonObject(i).getString("name"));
+        }
+        report.put(collection, names);
+      }));
+    }
+    return Future.all(listings).map(report);
+  }
+
+  private static List<String> missingIndexes(JsonObject report, boolean mandatoryOnly) {
+    List<String> missing = new ArrayList<>();
+    for (IndexDefinition index : INDEXES) {
+      if (mandatoryOnly && !index.mandatory) {
+        continue;
+      }
+      JsonArray names = report.getJsonArray(index.collection, new JsonArray());
+      if (!names.contains(index.name)) {
+        missing.add(index.collection + "." + index.name);
+      }
+    }
+    return missing;
+  }
+
+  private void startSlowQueryMonitor() {
+    if (slowQueryMs == null) {
+      return;
+    }
+    mongoClient.runCommand("profile", new JsonObject().put("profile", 1).put("slowms", slowQueryMs))
+      .onSuccess(res -> {
+        LOG.info("Reporting collection scans slower than " + slowQueryMs + " ms.");
+        vertx.setPeriodic(checkIntervalMs, timer -> reportCollectionScans());
+      })
+      .onFailure(cause -> LOG.warn("Mongo profiler unavailable, slow queries will not be reported: " + cause.getMessage()));
+  }
+
+  private void reportCollectionScans() {
+    JsonObject query = new JsonObject()
+      .put("planSummary", "COLLSCAN")
+      .put("ts", new JsonObject().put("$gt", lastProfiledAt));
+    FindOptions options = new FindOptions()
+      .setSort(new JsonObject().put("ts", 1))
+      .setLimit(SLOW_QUERY_REPORT_LIMIT);
+    mongoClient.findWithOptions(PROFILE_COLLECTION, query, options)
+      .onSuccess(entries -> {
+        for (JsonObject entry : entries) {
+          LOG.warn("Slow query without index on " + entry.getString("ns") + " took "
+            + entry.getValue("millis") + " ms: " + entry.getValue("command"));
+          lastProfiledAt = entry.getJsonObject("ts", lastProfiledAt);
+        }
+      })
+      .onFailure(cause -> LOG.error(cause.getMessage()));
+  }
+
+  static class IndexDefinition {
+    final String collection;
+    final String name;
+    final JsonObject key;
+    final boolean unique;
+    final boolean mandatory;
+
+    IndexDefinition(String collection, String name, JsonObject key, boolean unique, boolean mandatory) {
+      this.collection = collection;
+      this.name = name;
+      this.key = key;
+      this.unique = unique;
+      this.mandatory = mandatory;
+    }
+
+    IndexOptions options() {
+      return new IndexOptions().name(name).unique(unique);
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.vertx.vertx_server.repository;
+
+/**
+ * Raised when a user is inserted with a login that is already registered.
+ */
+public class DuplicateLoginException extends RuntimeException {
+
+  public DuplicateLoginException(String login, Throwable cause) {
+    super("Login already registered: " + login, cause, false, false);
+  }
+}
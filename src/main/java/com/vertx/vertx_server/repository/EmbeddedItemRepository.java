@@ -0,0 +1,135 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Items in a {@link MappedLog}, with an in-memory index of the offset of every
+ * item by owner and {@code _id}. Saving an item with an {@code _id} that is
+ * already stored replaces it, like a Mongo {@code save}.
+ * <p>
+ * Calls complete before they return: a write is a copy into mapped memory and
+ * a read a lookup in the index plus the decoding of the record.
+ */
+public class EmbeddedItemRepository implements ItemRepository {
+
+  private static final String MONGO_ID = "_id";
+  private static final String OWNER = "owner";
+  private static final String ID = "id";
+  private static final String NAME = "name";
+
+  private final Map<String, NavigableMap<String, Long>> byOwner = new ConcurrentHashMap<>();
+  private final MappedLog log;
+
+  EmbeddedItemRepository(Path file, int segmentBytes) throws IOException {
+    this.log = MappedLog.open(file, segmentBytes, (record, offset) -> index(new JsonObject(record), offset));
+  }
+
+  @Override
+  public Future<String> save(JsonObject item) {
+    if (item.getValue(MONGO_ID) == null) {
+      item.put(MONGO_ID, new ObjectId().toHexString());
+    }
+    try {
+      append(item);
+    } catch (IOException | RuntimeException e) {
+      return Future.failedFuture(e);
+    }
+    return Future.succeededFuture(item.getString(MONGO_ID));
+  }
+
+  @Override
+  public Future<List<String>> insertAll(List<JsonObject> items) {
+    List<String> errors = new ArrayList<>(items.size());
+    for (JsonObject item : items) {
+      try {
+        append(item);
+        errors.add(null);
+      } catch (IOException | RuntimeException e) {
+        errors.add(e.getMessage());
+      }
+    }
+    return Future.succeededFuture(errors);
+  }
+
+  @Override
+  public Future<List<JsonObject>> findByOwner(String ownerId) {
+    NavigableMap<String, Long> items = byOwner.getOrDefault(ownerId, Collections.emptyNavigableMap());
+    List<JsonObject> result = new ArrayList<>();
+    for (long offset : items.values()) {
+      result.add(read(offset));
+    }
+    return Future.succeededFuture(result);
+  }
+
+  @Override
+  public Future<List<JsonObject>> findPageByOwner(String ownerId, String after, int limit) {
+    NavigableMap<String, Long> items = byOwner.getOrDefault(ownerId, Collections.emptyNavigableMap());
+    if (after != null) {
+      items = items.tailMap(after, false);
+    }
+    List<JsonObject> result = new ArrayList<>(limit);
+    for (Iterator<Long> offsets = items.values().iterator(); offsets.hasNext() && result.size() < limit; ) {
+      JsonObject item = read(offsets.next());
+      result.add(listed(item).put(MONGO_ID, item.getString(MONGO_ID)));
+    }
+    return Future.succeededFuture(result);
+  }
+
+  /**
+   * Reads one item per emitted element, {@code batchSize} is not needed.
+   */
+  @Override
+  public ReadStream<JsonObject> streamByOwner(String ownerId, int batchSize) {
+    Iterator<Long> offsets = byOwner.getOrDefault(ownerId, Collections.emptyNavigableMap()).values().iterator();
+    return new IteratorReadStream<>(Vertx.currentContext(), new Iterator<JsonObject>() {
+      @Override
+      public boolean hasNext() {
+        return offsets.hasNext();
+      }
+
+      @Override
+      public JsonObject next() {
+        return listed(read(offsets.next()));
+      }
+    });
+  }
+
+  MappedLog log() {
+    return log;
+  }
+
+  private void append(JsonObject item) throws IOException {
+    long offset = log.append(item.toBuffer().getBytes());
+    index(item, offset);
+  }
+
+  private void index(JsonObject item, long offset) {
+    byOwner.computeIfAbsent(item.getString(OWNER), owner -> new ConcurrentSkipListMap<>())
+      .put(item.getString(MONGO_ID), offset);
+  }
+
+  private static JsonObject listed(JsonObject item) {
+    return new JsonObject().put(ID, item.getValue(ID)).put(NAME, item.getValue(NAME));
+  }
+
+  private JsonObject read(long offset) {
+    Buffer record = log.read(offset);
+    return new JsonObject(record);
+  }
+}
@@ -0,0 +1,111 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Items and users kept in memory-mapped logs under {@code path}, for a single
+ * node that does not need Mongo. Opening the store reads both logs to rebuild
+ * the indexes, so it takes time in proportion to the data.
+ * <p>
+ * Records are flushed to the disk every {@code flush.interval.ms}; a crash of
+ * the process loses nothing, a crash of the machine loses at most the writes
+ * of that interval.
+ */
+public class EmbeddedStore implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EmbeddedStore.class);
+  private static final String DEFAULT_PATH = "data";
+  private static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+  private static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+
+  private final EmbeddedItemRepository items;
+  private final EmbeddedUserRepository users;
+  private Vertx vertx;
+  private long flushTimer = -1;
+
+  private EmbeddedStore(EmbeddedItemRepository items, EmbeddedUserRepository users) {
+    this.items = items;
+    this.users = users;
+  }
+
+  /**
+   * Opens the store without flushing it periodically.
+   */
+  public static EmbeddedStore open(JsonObject config) throws IOException {
+    Path path = Paths.get(config.getString("path", DEFAULT_PATH));
+    int segmentBytes = config.getInteger("segment.bytes", DEFAULT_SEGMENT_BYTES);
+    Files.createDirectories(path);
+    EmbeddedItemRepository items = new EmbeddedItemRepository(path.resolve("items.log"), segmentBytes);
+    try {
+      EmbeddedUserRepository users = new EmbeddedUserRepository(path.resolve("users.log"), segmentBytes);
+      LOG.info("Opened the embedded store in " + path.toAbsolutePath() + " ("
+        + items.log().size() + " bytes of items, " + users.log().size() + " bytes of users).");
+      return new EmbeddedStore(items, users);
+    } catch (IOException | RuntimeException e) {
+      items.log().close();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens the store on a worker thread and flushes it every
+   * {@code flush.interval.ms}. The flush also maps the next segment of each
+   * log, so that appends on the event loop do not have to. The caller closes
+   * the store once nothing writes to it anymore, which stops the flush.
+   */
+  public static Future<EmbeddedStore> open(Vertx vertx, JsonObject config) {
+    long flushIntervalMs = config.getLong("flush.interval.ms", DEFAULT_FLUSH_INTERVAL_MS);
+    return vertx.executeBlocking(() -> {
+      EmbeddedStore store = open(config);
+      store.mapAhead();
+      return store;
+    }).onSuccess(store -> {
+      store.vertx = vertx;
+      store.flushTimer = vertx.setPeriodic(flushIntervalMs, id -> vertx.executeBlocking(() -> {
+        store.mapAhead();
+        store.force();
+        return null;
+      }));
+    });
+  }
+
+  public ItemRepository items() {
+    return items;
+  }
+
+  public UserRepository users() {
+    return users;
+  }
+
+  public void force() {
+    items.log().force();
+    users.log().force();
+  }
+
+  void mapAhead() throws IOException {
+    items.log().mapAhead();
+    users.log().mapAhead();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (vertx != null) {
+      vertx.cancelTimer(flushTimer);
+    }
+    try {
+      items.log().close();
+    } finally {
+      users.log().close();
+    }
+  }
+}
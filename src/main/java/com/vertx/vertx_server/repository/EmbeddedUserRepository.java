@@ -0,0 +1,65 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Users in a {@link MappedLog}, with an in-memory index of the offset of every
+ * user by login. Inserts are serialized so that a login is checked and taken
+ * at once.
+ */
+public class EmbeddedUserRepository implements UserRepository {
+
+  private static final String LOGIN = "login";
+
+  private final ConcurrentSkipListMap<String, Long> byLogin = new ConcurrentSkipListMap<>();
+  private final MappedLog log;
+
+  EmbeddedUserRepository(Path file, int segmentBytes) throws IOException {
+    this.log = MappedLog.open(file, segmentBytes, (record, offset) -> byLogin.put(new JsonObject(record).getString(LOGIN), offset));
+  }
+
+  @Override
+  public Future<Void> insert(JsonObject user) {
+    String login = user.getString(LOGIN);
+    synchronized (byLogin) {
+      if (byLogin.containsKey(login)) {
+        return Future.failedFuture(new DuplicateLoginException(login, null));
+      }
+      try {
+        byLogin.put(login, log.append(user.toBuffer().getBytes()));
+      } catch (IOException | RuntimeException e) {
+        return Future.failedFuture(e);
+      }
+    }
+    return Future.succeededFuture();
+  }
+
+  @Override
+  public Future<JsonObject> findByLogin(String login) {
+    Long offset = byLogin.get(login);
+    return Future.succeededFuture(offset == null ? null : new JsonObject(log.read(offset)));
+  }
+
+  @Override
+  public Future<List<String>> findLogins(String after, int limit) {
+    NavigableMap<String, Long> logins = after == null ? byLogin : byLogin.tailMap(after, false);
+    List<String> result = new ArrayList<>();
+    for (Iterator<String> it = logins.keySet().iterator(); it.hasNext() && result.size() < limit; ) {
+      result.add(it.next());
+    }
+    return Future.succeededFuture(result);
+  }
+
+  MappedLog log() {
+    return log;
+  }
+}
@@ -0,0 +1,51 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+
+import java.util.List;
+
+/**
+ * Storage of the items. Every item document has an {@code _id}, which orders
+ * the pages of an owner, and the {@code id}, {@code owner} and {@code name} of
+ * the item.
+ */
+public interface ItemRepository {
+
+  /**
+   * Stores the item, giving it an {@code _id} when it has none.
+   *
+   * @return the {@code _id} of the stored item
+   */
+  Future<String> save(JsonObject item);
+
+  /**
+   * Inserts documents that already have their {@code _id}, without stopping at
+   * the first one that fails.
+   *
+   * @return the error of each document in submission order, {@code null} for
+   * the ones that were stored
+   */
+  Future<List<String>> insertAll(List<JsonObject> items);
+
+  /**
+   * @return the items of the owner with at least their {@code id} and
+   * {@code name}
+   */
+  Future<List<JsonObject>> findByOwner(String ownerId);
+
+  /**
+   * @return up to {@code limit} items of the owner in {@code _id} order,
+   * starting after {@code after} when it is not {@code null}, with only their
+   * {@code _id}, {@code id} and {@code name}
+   */
+  Future<List<JsonObject>> findPageByOwner(String ownerId, String after, int limit);
+
+  /**
+   * Reads the items of the owner, with only their {@code id} and {@code name},
+   * as a stream that can be paused, holding at most about {@code batchSize} of
+   * them in memory.
+   */
+  ReadStream<JsonObject> streamByOwner(String ownerId, int batchSize);
+}
@@ -0,0 +1,96 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+
+import java.util.Iterator;
+
+/**
+ * Read stream over an iterator, emitting on the given context while there is
+ * demand. Emission starts on a later turn of the context once a handler is
+ * set, so the other handlers can be set after it.
+ */
+final class IteratorReadStream<T> implements ReadStream<T> {
+
+  private final Context context;
+  private final Iterator<T> iterator;
+  private Handler<T> handler;
+  private Handler<Void> endHandler;
+  private Handler<Throwable> exceptionHandler;
+  private long demand = Long.MAX_VALUE;
+  private boolean emitting;
+  private boolean ended;
+
+  IteratorReadStream(Context context, Iterator<T> iterator) {
+    this.context = context;
+    this.iterator = iterator;
+  }
+
+  @Override
+  public ReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> handler(Handler<T> handler) {
+    this.handler = handler;
+    if (handler != null) {
+      context.runOnContext(v -> emit());
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> pause() {
+    demand = 0;
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> resume() {
+    return fetch(Long.MAX_VALUE);
+  }
+
+  @Override
+  public ReadStream<T> fetch(long amount) {
+    demand = Long.MAX_VALUE - demand < amount ? Long.MAX_VALUE : demand + amount;
+    context.runOnContext(v -> emit());
+    return this;
+  }
+
+  @Override
+  public ReadStream<T> endHandler(Handler<Void> endHandler) {
+    this.endHandler = endHandler;
+    return this;
+  }
+
+  private void emit() {
+    if (emitting || ended) {
+      return;
+    }
+    emitting = true;
+    try {
+      while (demand > 0 && handler != null && iterator.hasNext()) {
+        if (demand != Long.MAX_VALUE) {
+          demand--;
+        }
+        handler.handle(iterator.next());
+      }
+      if (handler != null && !iterator.hasNext()) {
+        ended = true;
+        if (endHandler != null) {
+          endHandler.handle(null);
+        }
+      }
+    } catch (RuntimeException e) {
+      ended = true;
+      if (exceptionHandler != null) {
+        exceptionHandler.handle(e);
+      }
+    } finally {
+      emitting = false;
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of records, memory-mapped in segments of
+ * {@code segmentBytes}. A record is its length, the CRC32 of its bytes and the
+ * bytes, and is addressed by the offset it was written at. A record never
+ * spans two segments, the end of a segment that has no room for the next one
+ * is marked as padding.
+ * <p>
+ * Appends are serialized, reads need no locking: a reader only gets offsets
+ * from an index that was updated after the record was written. Written
+ * records are in the page cache right away and survive the process; they
+ * reach the disk when the kernel writes the pages back or on {@link #force()}.
+ * When the log is opened, it is read up to the first record that is missing or
+ * does not match its checksum, which is where the next append goes. The bytes
+ * left after it, a record torn by a crash, are logged and zeroed so that they
+ * cannot be replayed once later appends end before them; the scan stops at the
+ * first header's worth of zero bytes. When a valid record follows the damaged
+ * one, in the same segment or at the start of a later one, the damage is in
+ * the middle of the log and opening fails rather than dropping every later
+ * record.
+ * <p>
+ * Mapping a segment grows the file and can block, so the next segment is
+ * mapped ahead by {@link #mapAhead()} on a worker thread. An append only maps
+ * a segment itself when it fills the spare one before the next call.
+ */
+final class MappedLog implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MappedLog.class);
+  private static final int HEADER_BYTES = 8;
+  private static final int END = 0;
+  private static final int PADDING = -1;
+
+  private final FileChannel channel;
+  private final int segmentBytes;
+  private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+  // guards adding segments, without holding up appends while the spare one is mapped
+  private final Object mapLock = new Object();
+  private MappedByteBuffer spare;
+  private long end;
+  private volatile int forcedSegments;
+
+  private MappedLog(FileChannel channel, int segmentBytes) {
+    this.channel = channel;
+    this.segmentBytes = segmentBytes;
+  }
+
+  /**
+   * Opens or creates the log and hands every record it holds, with its
+   * offset, to {@code replay}.
+   */
+  static MappedLog open(Path file, int segmentBytes, ObjLongConsumer<Buffer> replay) throws IOException {
+    if (segmentBytes <= HEADER_BYTES) {
+      throw new IllegalArgumentException("Segments must be larger than " + HEADER_BYTES + " bytes");
+    }
+    FileChannel channel = FileChannel.open(file,
+      StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MappedLog log = new MappedLog(channel, segmentBytes);
+    try {
+      long existingSegments = (channel.size() + segmentBytes - 1) / segmentBytes;
+      for (long i = 0; i < existingSegments; i++) {
+        log.map();
+      }
+      log.replay(replay);
+      log.clearTail(file);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    return log;
+  }
+
+  /**
+   * @return the offset of the record
+   */
+  synchronized long append(byte[] record) throws IOException {
+    int recordBytes = HEADER_BYTES + record.length;
+    if (recordBytes > segmentBytes) {
+      throw new IllegalArgumentException("Record of " + record.length + " bytes does not fit in a segment");
+    }
+    int position = position(end);
+    if (position + recordBytes > segmentBytes) {
+      if (segmentBytes - position >= Integer.BYTES) {
+        segment(end).putInt(position, PADDING);
+      }
+      end += segmentBytes - position;
+      position = 0;
+    }
+    MappedByteBuffer segment = segment(end);
+    if (segment == null) {
+      segment = nextSegment();
+    }
+    CRC32 crc = new CRC32();
+    crc.update(record);
+    ByteBuffer target = segment.duplicate();
+    target.position(position + HEADER_BYTES);
+    target.put(record);
+    segment.putInt(position + Integer.BYTES, (int) crc.getValue());
+    // the length goes last, a record is not there until it is set
+    segment.putInt(position, record.length);
+
+    long offset = end;
+    end += recordBytes;
+    return offset;
+  }
+
+  Buffer read(long offset) {
+    ByteBuffer segment = segment(offset).duplicate();
+    int position = position(offset);
+    byte[] record = new byte[segment.getInt(position)];
+    segment.position(position + HEADER_BYTES);
+    segment.get(record);
+    return Buffer.buffer(record);
+  }
+
+  /**
+   * Number of bytes up to the end of the last record, padding included.
+   */
+  synchronized long size() {
+    return end;
+  }
+
+  /**
+   * Maps the segment after the last one, unless it is already mapped, for the
+   * append that fills the last segment to take without blocking.
+   */
+  void mapAhead() throws IOException {
+    synchronized (mapLock) {
+      if (spare == null) {
+        spare = channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentBytes, segmentBytes);
+      }
+    }
+  }
+
+  /**
+   * Writes the segments changed since the last call to the disk.
+   */
+  void force() {
+    int last = segments.size();
+    for (int i = Math.max(0, forcedSegments - 1); i < last; i++) {
+      segments.get(i).force();
+    }
+    forcedSegments = last;
+  }
+
+  @Override
+  public void close() throws IOException {
+    force();
+    channel.close();
+  }
+
+  private void replay(ObjLongConsumer<Buffer> replay) {
+    CRC32 crc = new CRC32();
+    while (true) {
+      MappedByteBuffer mapped = segment(end);
+      if (mapped == null) {
+        return;
+      }
+      int position = position(end);
+      if (segmentBytes - position < HEADER_BYTES) {
+        end += segmentBytes - position;
+        continue;
+      }
+      if (mapped.getInt(position) == PADDING) {
+        end += segmentBytes - position;
+        continue;
+      }
+      if (!isRecord(mapped, position, crc)) {
+        return;
+      }
+      replay.accept(read(end), end);
+      end += HEADER_BYTES + mapped.getInt(position);
+    }
+  }
+
+  private void clearTail(Path file) throws IOException {
+    long capacity = (long) segments.size() * segmentBytes;
+    long segmentEnd = Math.min(capacity, (end / segmentBytes + 1) * segmentBytes);
+    long dirtyEnd = end;
+    CRC32 crc = new CRC32();
+    // a record starts with a length that is not END, a header of END bytes ends what was written
+    int endBytes = 0;
+    for (long offset = end; offset < segmentEnd && endBytes < HEADER_BYTES; offset++) {
+      MappedByteBuffer mapped = segment(offset);
+      int position = position(offset);
+      if (mapped.get(position) != END) {
+        dirtyEnd = offset + 1;
+        endBytes = 0;
+      } else {
+        endBytes++;
+      }
+      if (offset > end && isRecord(mapped, position, crc)) {
+        throw damaged(file, offset);
+      }
+    }
+    // appends go on at the start of the next segment once one is padded
+    for (long offset = segmentEnd; offset < capacity; offset += segmentBytes) {
+      if (isRecord(segment(offset), 0, crc)) {
+        throw damaged(file, offset);
+      }
+    }
+    if (dirtyEnd == end) {
+      return;
+    }
+    LOG.warn("Discarding " + (dirtyEnd - end) + " bytes after the last valid record of " + file + " at offset " + end + ".");
+    for (long offset = end; offset < dirtyEnd; offset++) {
+      segment(offset).put(position(offset), (byte) END);
+    }
+  }
+
+  private IOException damaged(Path file, long offset) {
+    return new IOException("Damaged record at offset " + end + " of " + file + " is followed by a valid record at offset "
+      + offset + ", repair the log or move it aside");
+  }
+
+  private boolean isRecord(MappedByteBuffer mapped, int position, CRC32 crc) {
+    if (segmentBytes - position < HEADER_BYTES) {
+      return false;
+    }
+    int length = mapped.getInt(position);
+    if (length <= END || length > segmentBytes - position - HEADER_BYTES) {
+      return false;
+    }
+    ByteBuffer record = mapped.duplicate();
+    record.position(position + HEADER_BYTES).limit(position + HEADER_BYTES + length);
+    crc.reset();
+    crc.update(record);
+    return (int) crc.getValue() == mapped.getInt(position + Integer.BYTES);
+  }
+
+  private MappedByteBuffer nextSegment() throws IOException {
+    synchronized (mapLock) {
+      if (spare == null) {
+        return map();
+      }
+      MappedByteBuffer segment = spare;
+      spare = null;
+      segments.add(segment);
+      return segment;
+    }
+  }
+
+  private MappedByteBuffer map() throws IOException {
+    MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentBytes, segmentBytes);
+    segments.add(segment);
+    return segment;
+  }
+
+  private MappedByteBuffer segment(long offset) {
+    int index = (int) (offset / segmentBytes);
+    return index < segments.size() ? segments.get(index) : null;
+  }
+
+  private int position(long offset) {
+    return (int) (offset % segmentBytes);
+  }
+}
@@ -0,0 +1,57 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+
+import java.util.function.Function;
+
+/**
+ * Applies a function to every element of another stream, with the flow
+ * control of that stream.
+ */
+final class MappingReadStream<T, R> implements ReadStream<R> {
+
+  private final ReadStream<T> source;
+  private final Function<T, R> mapper;
+
+  MappingReadStream(ReadStream<T> source, Function<T, R> mapper) {
+    this.source = source;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public ReadStream<R> exceptionHandler(Handler<Throwable> handler) {
+    source.exceptionHandler(handler);
+    return this;
+  }
+
+  @Override
+  public ReadStream<R> handler(Handler<R> handler) {
+    source.handler(handler == null ? null : element -> handler.handle(mapper.apply(element)));
+    return this;
+  }
+
+  @Override
+  public ReadStream<R> pause() {
+    source.pause();
+    return this;
+  }
+
+  @Override
+  public ReadStream<R> resume() {
+    source.resume();
+    return this;
+  }
+
+  @Override
+  public ReadStream<R> fetch(long amount) {
+    source.fetch(amount);
+    return this;
+  }
+
+  @Override
+  public ReadStream<R> endHandler(Handler<Void> endHandler) {
+    source.endHandler(endHandler);
+    return this;
+  }
+}
@@ -0,0 +1,161 @@
+package com.vertx.vertx_server.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.vertx.vertx_server.handler.ItemListEncoder;
+import com.vertx.vertx_server.metrics.MongoInstrumentation;
+import com.vertx.vertx_server.model.Uuids;
+import com.vertx.vertx_server.mongo.InsertCoalescer;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Items in the {@code items} collection.
+ * <p>
+ * With {@code binaryUuids}, the {@code id} and {@code owner} of the items are
+ * stored as BSON binary subtype 4 rather than strings, which makes documents
+ * and the owner index smaller. Callers still see strings: documents are
+ * converted in place on the way in and back on the way out. Both forms cannot
+ * be mixed in one collection, existing documents have to be converted before
+ * the option is switched.
+ */
+public class MongoItemRepository implements ItemRepository {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MongoItemRepository.class);
+  private static final String COLLECTION = "items";
+  private static final String MONGO_ID = "_id";
+  private static final String OWNER = "owner";
+  private static final String ID = "id";
+  // pages are ordered and continued by _id, the handler drops it once the next page is known
+  private static final JsonObject PAGE_FIELDS = ItemListEncoder.FIELDS.copy().put(MONGO_ID, 1);
+
+  private final MongoClient mongoClient;
+  private final InsertCoalescer insertCoalescer;
+  private final boolean binaryUuids;
+
+  public MongoItemRepository(MongoClient mongoClient) {
+    this(mongoClient, null, false);
+  }
+
+  /**
+   * @param insertCoalescer groups single saves into bulk writes, or {@code null}
+   *                        to save every item with its own round-trip
+   * @param binaryUuids     stores the UUIDs as BSON binary instead of strings
+   */
+  public MongoItemRepository(MongoClient mongoClient, InsertCoalescer insertCoalescer, boolean binaryUuids) {
+    this.mongoClient = mongoClient;
+    this.insertCoalescer = insertCoalescer;
+    this.binaryUuids = binaryUuids;
+  }
+
+  @Override
+  public Future<String> save(JsonObject item) {
+    toStored(item);
+    if (insertCoalescer != null) {
+      return MongoInstrumentation.instrument(COLLECTION, "coalescedInsert", () -> insertCoalescer.insert(item));
+    }
+    Promise<String> promise = Promise.promise();
+    mongoClient.save(COLLECTION, item, MongoInstrumentation.instrument(COLLECTION, "save", promise));
+    return promise.future();
+  }
+
+  @Override
+  public Future<List<String>> insertAll(List<JsonObject> items) {
+    List<BulkOperation> operations = new ArrayList<>(items.size());
+    for (JsonObject item : items) {
+      operations.add(BulkOperation.createInsert(toStored(item)));
+    }
+    return MongoInstrumentation.instrument(COLLECTION, "bulkWrite",
+        () -> mongoClient.bulkWriteWithOptions(COLLECTION, operations, new BulkWriteOptions(false)))
+      .transform(res -> {
+        String[] errors = new String[items.size()];
+        if (res.failed()) {
+          LOG.error(res.cause().getMessage());
+          if (res.cause() instanceof MongoBulkWriteException) {
+            for (BulkWriteError error : ((MongoBulkWriteException) res.cause()).getWriteErrors()) {
+              errors[error.getIndex()] = error.getMessage();
+            }
+          } else {
+            Arrays.fill(errors, "Failed to save item");
+          }
+        }
+        return Future.succeededFuture(Arrays.asList(errors));
+      });
+  }
+
+  /**
+   * The {@code id} of the listed items is left binary, {@code ItemListEncoder}
+   * writes it as a string.
+   */
+  @Override
+  public Future<List<JsonObject>> findByOwner(String ownerId) {
+    FindOptions options = new FindOptions().setFields(ItemListEncoder.FIELDS);
+    Promise<List<JsonObject>> promise = Promise.promise();
+    mongoClient.findWithOptions(COLLECTION, ownerQuery(ownerId), options, MongoInstrumentation.instrument(COLLECTION, "find", promise));
+    return promise.future();
+  }
+
+  @Override
+  public Future<List<JsonObject>> findPageByOwner(String ownerId, String after, int limit) {
+    JsonObject query = ownerQuery(ownerId);
+    if (after != null) {
+      query.put(MONGO_ID, new JsonObject().put("$gt", after));
+    }
+    FindOptions options = new FindOptions()
+      .setFields(PAGE_FIELDS)
+      .setSort(new JsonObject().put(MONGO_ID, 1))
+      .setLimit(limit);
+    Promise<List<JsonObject>> promise = Promise.promise();
+    mongoClient.findWithOptions(COLLECTION, query, options, MongoInstrumentation.instrument(COLLECTION, "findPage", promise));
+    if (!binaryUuids) {
+      return promise.future();
+    }
+    return promise.future().map(items -> {
+      items.forEach(MongoItemRepository::fromStored);
+      return items;
+    });
+  }
+
+  @Override
+  public ReadStream<JsonObject> streamByOwner(String ownerId, int batchSize) {
+    ReadStream<JsonObject> items = mongoClient.findBatchWithOptions(COLLECTION, ownerQuery(ownerId), new FindOptions()
+      .setFields(ItemListEncoder.FIELDS)
+      .setBatchSize(batchSize));
+    return binaryUuids ? new MappingReadStream<>(items, MongoItemRepository::fromStored) : items;
+  }
+
+  private JsonObject ownerQuery(String ownerId) {
+    return new JsonObject().put(OWNER, binaryUuids ? Uuids.toBinary(UUID.fromString(ownerId)) : ownerId);
+  }
+
+  private JsonObject toStored(JsonObject item) {
+    if (binaryUuids) {
+      item.put(ID, Uuids.toBinary(UUID.fromString(item.getString(ID))));
+      item.put(OWNER, Uuids.toBinary(UUID.fromString(item.getString(OWNER))));
+    }
+    return item;
+  }
+
+  private static JsonObject fromStored(JsonObject item) {
+    for (String field : new String[]{ID, OWNER}) {
+      Object value = item.getValue(field);
+      if (Uuids.isBinary(value)) {
+        item.put(field, Uuids.toString(value));
+      }
+    }
+    return item;
+  }
+}
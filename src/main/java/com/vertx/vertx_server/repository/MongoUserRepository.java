@@ -0,0 +1,79 @@
+package com.vertx.vertx_server.repository;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.vertx.vertx_server.metrics.MongoInstrumentation;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Users in the {@code users} collection. Uniqueness of the login is enforced
+ * by the unique index on {@code users.login}, so concurrent registrations of
+ * the same login cannot both succeed.
+ */
+public class MongoUserRepository implements UserRepository {
+
+  private static final String COLLECTION = "users";
+  private static final String LOGIN = "login";
+
+  private final MongoClient mongoClient;
+
+  public MongoUserRepository(MongoClient mongoClient) {
+    this.mongoClient = mongoClient;
+  }
+
+  @Override
+  public Future<Void> insert(JsonObject user) {
+    Promise<String> promise = Promise.promise();
+    mongoClient.insert(COLLECTION, user, MongoInstrumentation.instrument(COLLECTION, "insert", promise));
+    return promise.future().transform(res -> {
+      if (res.succeeded()) {
+        return Future.succeededFuture();
+      }
+      if (isDuplicateKey(res.cause())) {
+        return Future.failedFuture(new DuplicateLoginException(user.getString(LOGIN), res.cause()));
+      }
+      return Future.failedFuture(res.cause());
+    });
+  }
+
+  @Override
+  public Future<JsonObject> findByLogin(String login) {
+    Promise<JsonObject> promise = Promise.promise();
+    mongoClient.findOne(COLLECTION, new JsonObject().put(LOGIN, login), null, MongoInstrumentation.instrument(COLLECTION, "findOne", promise));
+    return promise.future();
+  }
+
+  /**
+   * Reads the logins in index order, the unique login index serves the query
+   * without reading the documents.
+   */
+  @Override
+  public Future<List<String>> findLogins(String after, int limit) {
+    JsonObject query = after == null ? new JsonObject() : new JsonObject().put(LOGIN, new JsonObject().put("$gt", after));
+    FindOptions options = new FindOptions()
+      .setFields(new JsonObject().put(LOGIN, 1).put("_id", 0))
+      .setSort(new JsonObject().put(LOGIN, 1))
+      .setLimit(limit);
+    Promise<List<JsonObject>> promise = Promise.promise();
+    mongoClient.findWithOptions(COLLECTION, query, options, MongoInstrumentation.instrument(COLLECTION, "loadLogins", promise));
+    return promise.future().map(users -> {
+      List<String> logins = new ArrayList<>(users.size());
+      for (JsonObject user : users) {
+        logins.add(user.getString(LOGIN));
+      }
+      return logins;
+    });
+  }
+
+  private static boolean isDuplicateKey(Throwable cause) {
+    return cause instanceof MongoException
+      && ErrorCategory.fromErrorCode(((MongoException) cause).getCode()) == ErrorCategory.DUPLICATE_KEY;
+  }
+}
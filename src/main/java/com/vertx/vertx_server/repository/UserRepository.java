@@ -0,0 +1,29 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+
+import java.util.List;
+
+/**
+ * Storage of the users, which are unique by {@code login}.
+ */
+public interface UserRepository {
+
+  /**
+   * Inserts a new user, failing with a {@link DuplicateLoginException} when
+   * the login is taken.
+   */
+  Future<Void> insert(JsonObject user);
+
+  /**
+   * @return the user, or {@code null} when the login is not registered
+   */
+  Future<JsonObject> findByLogin(String login);
+
+  /**
+   * @return up to {@code limit} registered logins in ascending order,
+   * starting after {@code after} when it is not {@code null}
+   */
+  Future<List<String>> findLogins(String after, int limit);
+}
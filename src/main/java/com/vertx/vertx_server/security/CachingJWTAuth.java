@@ -0,0 +1,125 @@
+package com.vertx.vertx_server.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.authentication.Credentials;
+import io.vertx.ext.auth.authentication.TokenCredentials;
+import io.vertx.ext.auth.jwt.JWTAuth;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JWTAuth} that remembers successfully verified tokens until they expire,
+ * so a client repeating the same token skips decoding, parsing and the HMAC check.
+ * <p>
+ * Tokens are keyed by themselves: hashing them would cost about as much as the
+ * HMAC check the cache skips. Every request gets its own copy of the cached
+ * user, as handlers may add attributes or authorizations to it. Failed
+ * verifications are never cached.
+ */
+public class CachingJWTAuth implements JWTAuth {
+
+  private static final long DEFAULT_MAX_ENTRIES = 100_000;
+  private static final long DEFAULT_MAX_TTL_SECONDS = 300;
+
+  private final JWTAuth delegate;
+  private final Cache<String, User> verifiedTokens;
+
+  public CachingJWTAuth(JWTAuth delegate, JsonObject config) {
+    this.delegate = delegate;
+    long maxTtlNanos = TimeUnit.SECONDS.toNanos(config.getLong("max.ttl.seconds", DEFAULT_MAX_TTL_SECONDS));
+    this.verifiedTokens = Caffeine.newBuilder()
+      .maximumSize(config.getLong("max.entries", DEFAULT_MAX_ENTRIES))
+      .expireAfter(new TokenExpiry(maxTtlNanos))
+      .build();
+  }
+
+  @Override
+  public Future<User> authenticate(Credentials credentials) {
+    if (!(credentials instanceof TokenCredentials)) {
+      return delegate.authenticate(credentials);
+    }
+    String token = ((TokenCredentials) credentials).getToken();
+    if (token == null) {
+      return delegate.authenticate(credentials);
+    }
+    User cached = verifiedTokens.getIfPresent(token);
+    if (cached != null) {
+      return Future.succeededFuture(copy(cached));
+    }
+    return delegate.authenticate(credentials).onSuccess(user -> verifiedTokens.put(token, copy(user)));
+  }
+
+  @Override
+  public void authenticate(Credentials credentials, Handler<AsyncResult<User>> resultHandler) {
+    authenticate(credentials).onComplete(resultHandler);
+  }
+
+  @Override
+  public Future<User> authenticate(JsonObject credentials) {
+    return authenticate(new TokenCredentials(credentials.getString("token")));
+  }
+
+  @Override
+  public void authenticate(JsonObject credentials, Handler<AsyncResult<User>> resultHandler) {
+    authenticate(credentials).onComplete(resultHandler);
+  }
+
+  @Override
+  public String generateToken(JsonObject claims, JWTOptions options) {
+    return delegate.generateToken(claims, options);
+  }
+
+  @Override
+  public String generateToken(JsonObject claims) {
+    return delegate.generateToken(claims);
+  }
+
+  public long size() {
+    return verifiedTokens.estimatedSize();
+  }
+
+  private static User copy(User user) {
+    return User.create(user.principal().copy(), user.attributes().copy());
+  }
+
+  /**
+   * Expires an entry at the token's {@code exp} claim, or after the maximum TTL
+   * for tokens without one.
+   */
+  private static class TokenExpiry implements Expiry<String, User> {
+
+    private final long maxTtlNanos;
+
+    TokenExpiry(long maxTtlNanos) {
+      this.maxTtlNanos = maxTtlNanos;
+    }
+
+    @Override
+    public long expireAfterCreate(String key, User user, long currentTime) {
+      Long exp = user.attributes().getLong("exp");
+      if (exp == null) {
+        return maxTtlNanos;
+      }
+      long remainingNanos = TimeUnit.SECONDS.toNanos(exp) - TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+      return Math.max(0, Math.min(remainingNanos, maxTtlNanos));
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, User user, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String key, User user, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.vertx.vertx_server.security;
+
+import com.vertx.vertx_server.metrics.AppMetrics;
+import com.vertx.vertx_server.tracing.AppTracing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt hashing and verification on a dedicated worker pool so that
+ * credential work never blocks an event loop.
+ * <p>
+ * The number of pending tasks is bounded by {@code queue.depth}; once it is
+ * reached new tasks fail fast with a {@link RejectedExecutionException} that
+ * callers translate into a 503 response. The worker threads and the count of
+ * pending tasks are shared by every hasher of the Vert.x instance, so the
+ * bound applies to the process and not to each verticle instance. Each hasher
+ * keeps its own reference to the pool, which is closed with the verticle that
+ * created it.
+ * <p>
+ * Queue wait and BCrypt time are published as the {@code credentials.queue.wait}
+ * and {@code credentials.bcrypt} timers, rejections as {@code credentials.rejected}.
+ * Each task is traced as a span covering queue wait and BCrypt time.
+ */
+public class CredentialHasher {
+
+  private static final String SHARED_MAP = "credential-hasher";
+  private static final String POOL_NAME = "credential-hasher";
+  private static final int DEFAULT_POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+  private static final int DEFAULT_QUEUE_DEPTH = 64;
+  private static final int DEFAULT_LOG_ROUNDS = 10;
+  private static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+  private final WorkerExecutor executor;
+  private final int queueDepth;
+  private final int logRounds;
+  private final int retryAfterSeconds;
+
+  private final Tasks tasks;
+
+  private final Timer queueWaitTimer;
+  private final Timer hashTimer;
+  private final Timer verifyTimer;
+  private final Counter rejectedCounter;
+
+  public CredentialHasher(Vertx vertx, JsonObject config) {
+    int poolSize = config.getInteger("pool.size", DEFAULT_POOL_SIZE);
+    this.queueDepth = config.getInteger("queue.depth", DEFAULT_QUEUE_DEPTH);
+    this.logRounds = config.getInteger("bcrypt.log.rounds", DEFAULT_LOG_ROUNDS);
+    this.retryAfterSeconds = config.getInteger("retry.after.seconds", DEFAULT_RETRY_AFTER_SECONDS);
+    this.executor = vertx.createSharedWorkerExecutor(POOL_NAME, poolSize);
+    this.tasks = vertx.sharedData()
+      .<String, Tasks>getLocalMap(SHARED_MAP)
+      .computeIfAbsent(SHARED_MAP, name -> new Tasks());
+
+    MeterRegistry registry = AppMetrics.registry();
+    this.queueWaitTimer = Timer.builder("credentials.queue.wait").publishPercentileHistogram().register(registry);
+    this.hashTimer = bcryptTimer(registry, "hash");
+    this.verifyTimer = bcryptTimer(registry, "verify");
+    this.rejectedCounter = Counter.builder("credentials.rejected").register(registry);
+  }
+
+  public Future<String> hash(String password) {
+    return submit("bcrypt hash", hashTimer, () -> BCrypt.hashpw(password, BCrypt.gensalt(logRounds)));
+  }
+
+  public Future<Boolean> verify(String password, String hashedPassword) {
+    return submit("bcrypt verify", verifyTimer, () -> BCrypt.checkpw(password, hashedPassword));
+  }
+
+  public int getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+  public JsonObject metrics() {
+    long count = tasks.completed.sum();
+    return new JsonObject()
+      .put("pending", tasks.pending.get())
+      .put("completed", count)
+      .put("rejected", tasks.rejected.sum())
+      .put("queueWaitAvgMs", averageMillis(tasks.queueWaitNanos.sum(), count))
+      .put("hashAvgMs", averageMillis(tasks.hashNanos.sum(), count));
+  }
+
+  private <T> Future<T> submit(String spanName, Timer bcryptTimer, Callable<T> task) {
+    if (tasks.pending.incrementAndGet() > queueDepth) {
+      tasks.pending.decrementAndGet();
+      tasks.rejected.increment();
+      rejectedCounter.increment();
+      return Future.failedFuture(new RejectedExecutionException("Credential queue is full."));
+    }
+    Span span = AppTracing.startSpan(spanName, SpanKind.INTERNAL);
+    long enqueuedAt = System.nanoTime();
+    return executor.<T>executeBlocking(() -> {
+      long startedAt = System.nanoTime();
+      tasks.queueWaitNanos.add(startedAt - enqueuedAt);
+      queueWaitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+      span.setAttribute("credentials.queue.wait.ms", TimeUnit.NANOSECONDS.toMillis(startedAt - enqueuedAt));
+      try {
+        return task.call();
+      } finally {
+        long elapsed = System.nanoTime() - startedAt;
+        tasks.hashNanos.add(elapsed);
+        bcryptTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        tasks.completed.increment();
+      }
+    }, false).onComplete(ar -> {
+      tasks.pending.decrementAndGet();
+      if (ar.failed()) {
+        span.setStatus(StatusCode.ERROR, ar.cause().getMessage());
+      }
+      span.end();
+    });
+  }
+
+  private static Timer bcryptTimer(MeterRegistry registry, String operation) {
+    return Timer.builder("credentials.bcrypt")
+      .tag("operation", operation)
+      .publishPercentileHistogram()
+      .register(registry);
+  }
+
+  private static class Tasks implements Shareable {
+    final AtomicInteger pending = new AtomicInteger();
+    final LongAdder completed = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder queueWaitNanos = new LongAdder();
+    final LongAdder hashNanos = new LongAdder();
+  }
+
+  private static double averageMillis(long totalNanos, long count) {
+    return count == 0 ? 0 : (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
@@ -0,0 +1,74 @@
+package com.vertx.vertx_server.security;
+
+import com.vertx.vertx_server.metrics.AppMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Rejects a request with 429 when the bucket of its key is empty, before any
+ * handler after it runs. Requests without a key are let through.
+ * <p>
+ * Rejections are counted in {@code ratelimit.rejected}, tagged with the name
+ * of the limiter.
+ */
+public class RateLimitHandler implements Handler<RoutingContext> {
+
+  private final TokenBucketLimiter limiter;
+  private final Function<RoutingContext, String> key;
+  private final Counter rejectedCounter;
+
+  public RateLimitHandler(String name, TokenBucketLimiter limiter, Function<RoutingContext, String> key) {
+    this.limiter = limiter;
+    this.key = key;
+    this.rejectedCounter = Counter.builder("ratelimit.rejected")
+      .tag("limiter", name)
+      .register(AppMetrics.registry());
+  }
+
+  /**
+   * Keys requests by the address of the client.
+   * <p>
+   * Without {@code header} that is the TCP peer, which behind a load balancer
+   * or reverse proxy is the proxy: every client would share one bucket, so the
+   * caller only keys by the peer when told that clients connect directly. With
+   * {@code header}, such as {@code X-Forwarded-For}, it is the last address of
+   * that header, the one added by the proxy in front of the server; earlier
+   * addresses are sent by the client and could be forged. The header must
+   * only be configured when every request goes through a proxy that sets it,
+   * requests without it fall back to the TCP peer.
+   */
+  public static Function<RoutingContext, String> clientAddress(String header) {
+    return context -> {
+      String forwarded = header == null ? null : context.request().getHeader(header);
+      if (forwarded != null) {
+        String last = forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+        if (!last.isEmpty()) {
+          return last;
+        }
+      }
+      return context.request().remoteAddress() == null ? null : context.request().remoteAddress().host();
+    };
+  }
+
+  @Override
+  public void handle(RoutingContext context) {
+    String value = key.apply(context);
+    long waitNanos = value == null ? 0 : limiter.tryAcquire(value);
+    if (waitNanos == 0) {
+      context.next();
+      return;
+    }
+    rejectedCounter.increment();
+    long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    context.response()
+      .setStatusCode(429)
+      .putHeader("Retry-After", String.valueOf(retryAfterSeconds))
+      .putHeader("Content-Type", "application/json")
+      .end(new JsonObject().put("error", "Too many requests, try again later.").encode());
+  }
+}
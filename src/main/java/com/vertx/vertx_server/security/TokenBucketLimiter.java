@@ -0,0 +1,104 @@
+package com.vertx.vertx_server.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets keyed by an arbitrary string, such as a client address or a
+ * login. A bucket holds up to {@code capacity} tokens and gains
+ * {@code refill.per.second} tokens per second; a request takes one token or is
+ * rejected.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will
+ * be full again (the GCRA form of a token bucket), so taking a token is one
+ * compare-and-set and never blocks. Buckets live in a Caffeine cache, which
+ * stripes its internal state, bounds the number of keys to {@code max.entries}
+ * and drops buckets that have not been used for {@code idle.seconds}, or for
+ * the time they take to refill if that is longer.
+ */
+public class TokenBucketLimiter implements Shareable {
+
+  private static final String SHARED_MAP = "token-bucket-limiters";
+  private static final int DEFAULT_CAPACITY = 10;
+  private static final double DEFAULT_REFILL_PER_SECOND = 1;
+  private static final long DEFAULT_MAX_ENTRIES = 100_000;
+  private static final long DEFAULT_IDLE_SECONDS = 600;
+
+  private final long emissionIntervalNanos;
+  private final long burstNanos;
+  private final LongSupplier clock;
+  private final Cache<String, AtomicLong> buckets;
+  private final LongAdder allowed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public TokenBucketLimiter(JsonObject config) {
+    this(config, System::nanoTime);
+  }
+
+  TokenBucketLimiter(JsonObject config, LongSupplier clock) {
+    int capacity = config.getInteger("capacity", DEFAULT_CAPACITY);
+    double refillPerSecond = config.getDouble("refill.per.second", DEFAULT_REFILL_PER_SECOND);
+    if (capacity < 1 || refillPerSecond <= 0) {
+      throw new IllegalArgumentException("Rate limit needs a capacity >= 1 and a refill rate > 0");
+    }
+    this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+    this.burstNanos = emissionIntervalNanos * capacity;
+    this.clock = clock;
+    long idleNanos = Math.max(TimeUnit.SECONDS.toNanos(config.getLong("idle.seconds", DEFAULT_IDLE_SECONDS)), burstNanos);
+    this.buckets = Caffeine.newBuilder()
+      .maximumSize(config.getLong("max.entries", DEFAULT_MAX_ENTRIES))
+      .expireAfterAccess(Duration.ofNanos(idleNanos))
+      .build();
+  }
+
+  /**
+   * Returns the limiter registered under {@code name} for every verticle
+   * instance of this Vert.x instance, creating it from {@code config} on first
+   * use.
+   */
+  public static TokenBucketLimiter shared(Vertx vertx, String name, JsonObject config) {
+    return vertx.sharedData()
+      .<String, TokenBucketLimiter>getLocalMap(SHARED_MAP)
+      .computeIfAbsent(name, key -> new TokenBucketLimiter(config));
+  }
+
+  /**
+   * Takes a token from the bucket of {@code key}.
+   *
+   * @return {@code 0} when the token was taken, otherwise the number of
+   * nanoseconds until one is available
+   */
+  public long tryAcquire(String key) {
+    long now = clock.getAsLong();
+    AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(now));
+    while (true) {
+      long current = fullAt.get();
+      long next = (current - now < 0 ? now : current) + emissionIntervalNanos;
+      long overdraw = next - now - burstNanos;
+      if (overdraw > 0) {
+        rejected.increment();
+        return overdraw;
+      }
+      if (fullAt.compareAndSet(current, next)) {
+        allowed.increment();
+        return 0;
+      }
+    }
+  }
+
+  public JsonObject metrics() {
+    return new JsonObject()
+      .put("keys", buckets.estimatedSize())
+      .put("allowed", allowed.sum())
+      .put("rejected", rejected.sum());
+  }
+}
@@ -0,0 +1,69 @@
+package com.vertx.vertx_server.security;
+
+import com.vertx.vertx_server.tracing.AppTracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.authentication.Credentials;
+import io.vertx.ext.auth.authentication.TokenCredentials;
+import io.vertx.ext.auth.jwt.JWTAuth;
+
+/**
+ * {@link JWTAuth} that records every token validation as a span, with the
+ * owner id of the authenticated user.
+ */
+public class TracingJWTAuth implements JWTAuth {
+
+  private final JWTAuth delegate;
+
+  public TracingJWTAuth(JWTAuth delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Future<User> authenticate(Credentials credentials) {
+    Span span = AppTracing.startSpan("jwt authenticate", SpanKind.INTERNAL);
+    return delegate.authenticate(credentials).andThen(res -> {
+      if (res.succeeded()) {
+        String ownerId = res.result().principal().getString("ownerId");
+        if (ownerId != null) {
+          span.setAttribute("app.owner_id", ownerId);
+        }
+      } else {
+        span.setStatus(StatusCode.ERROR, res.cause().getMessage());
+      }
+      span.end();
+    });
+  }
+
+  @Override
+  public void authenticate(Credentials credentials, Handler<AsyncResult<User>> resultHandler) {
+    authenticate(credentials).onComplete(resultHandler);
+  }
+
+  @Override
+  public Future<User> authenticate(JsonObject credentials) {
+    return authenticate(new TokenCredentials(credentials.getString("token")));
+  }
+
+  @Override
+  public void authenticate(JsonObject credentials, Handler<AsyncResult<User>> resultHandler) {
+    authenticate(credentials).onComplete(resultHandler);
+  }
+
+  @Override
+  public String generateToken(JsonObject claims, JWTOptions options) {
+    return delegate.generateToken(claims, options);
+  }
+
+  @Override
+  public String generateToken(JsonObject claims) {
+    return delegate.generateToken(claims);
+  }
+}
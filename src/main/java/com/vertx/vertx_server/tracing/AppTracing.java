@@ -0,0 +1,108 @@
+package com.vertx.vertx_server.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.tracing.TracingOptions;
+import io.vertx.tracing.opentelemetry.OpenTelemetryOptions;
+
+/**
+ * Sets up OpenTelemetry for Vert.x and gives the handlers a tracer for their
+ * own spans.
+ * <p>
+ * Vert.x opens a server span per HTTP request; spans started through
+ * {@link #startSpan} become its children because Vert.x keeps the current
+ * trace context on the request's context. A {@code sample.ratio} of the
+ * traces is recorded, requests carrying a sampled parent are always recorded.
+ * The {@code exporter} is {@code otlp}, {@code logging} for local runs, or
+ * {@code none}. Without tracing the tracer is a no-op.
+ */
+public final class AppTracing {
+
+  private static final String INSTRUMENTATION_NAME = "com.vertx.vertx_server";
+  private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+  private static final double DEFAULT_SAMPLE_RATIO = 0.1;
+
+  private static volatile Tracer tracer = OpenTelemetry.noop().getTracer(INSTRUMENTATION_NAME);
+  private static volatile boolean enabled;
+
+  private AppTracing() {
+  }
+
+  /**
+   * Returns the Vert.x tracing options for the {@code tracing} configuration,
+   * or {@code null} when tracing is disabled.
+   */
+  public static TracingOptions options(JsonObject config) {
+    if (!config.getBoolean("enabled", false)) {
+      return null;
+    }
+    OpenTelemetrySdk openTelemetry = create(config, spanProcessor(config));
+    Runtime.getRuntime().addShutdownHook(new Thread(openTelemetry.getSdkTracerProvider()::close));
+    install(openTelemetry);
+    return new OpenTelemetryOptions(openTelemetry);
+  }
+
+  public static OpenTelemetrySdk create(JsonObject config, SpanProcessor spanProcessor) {
+    Resource resource = Resource.getDefault()
+      .merge(Resource.create(Attributes.of(SERVICE_NAME, config.getString("service.name", "vertx-server"))));
+    SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+      .setResource(resource)
+      .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(config.getDouble("sample.ratio", DEFAULT_SAMPLE_RATIO))))
+      .addSpanProcessor(spanProcessor)
+      .build();
+    return OpenTelemetrySdk.builder()
+      .setTracerProvider(tracerProvider)
+      .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+      .build();
+  }
+
+  public static void install(OpenTelemetry openTelemetry) {
+    tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+    enabled = true;
+  }
+
+  static void reset() {
+    tracer = OpenTelemetry.noop().getTracer(INSTRUMENTATION_NAME);
+    enabled = false;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static Span startSpan(String name, SpanKind kind) {
+    return tracer.spanBuilder(name).setSpanKind(kind).startSpan();
+  }
+
+  private static SpanProcessor spanProcessor(JsonObject config) {
+    String exporter = config.getString("exporter", "none");
+    switch (exporter) {
+      case "otlp":
+        return BatchSpanProcessor.builder(OtlpGrpcSpanExporter.builder()
+          .setEndpoint(config.getString("otlp.endpoint", "http://localhost:4317"))
+          .build()).build();
+      case "logging":
+        return SimpleSpanProcessor.create(LoggingSpanExporter.create());
+      case "none":
+        return SpanProcessor.composite();
+      default:
+        throw new IllegalArgumentException("Unknown tracing exporter " + exporter);
+    }
+  }
+}
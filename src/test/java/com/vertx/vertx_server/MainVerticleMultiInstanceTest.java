@@ -0,0 +1,101 @@
+package com.vertx.vertx_server;
+
+import io.vertx.config.ConfigRetriever;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.PubSecKeyOptions;
+import io.vertx.ext.auth.jwt.JWTAuth;
+import io.vertx.ext.auth.jwt.JWTAuthOptions;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.vertx.vertx_server.MainVerticle.getConfigRetrieverOptions;
+import static com.vertx.vertx_server.MainVerticle.getDeploymentOptions;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(VertxExtension.class)
+public class MainVerticleMultiInstanceTest {
+
+  private static final int INSTANCES = 4;
+  private static final int REQUESTS = 500;
+  private static final int CONNECTIONS = 16;
+
+  @Test
+  @Timeout(value = 60, timeUnit = TimeUnit.SECONDS)
+  void requestsAreSpreadOverEventLoops(Vertx vertx, VertxTestContext testContext) {
+    Set<String> eventLoops = ConcurrentHashMap.newKeySet();
+    MongoClient mockMongoClient = mock(MongoClient.class);
+    doAnswer(invocation -> {
+      eventLoops.add(Thread.currentThread().getName());
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(new ArrayList<>()));
+      return null;
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+
+    ConfigRetriever.create(vertx, getConfigRetrieverOptions()).getConfig()
+      .compose(config -> {
+        String token = initJWTAuth(config.getJsonObject("jwt"), vertx).generateToken(
+          new JsonObject().put("ownerId", "eb5c7783-b3e4-4466-b281-13acb9990565"),
+          new JWTOptions().setExpiresInSeconds(60)
+        );
+        JsonObject instanceConfig = config.copy().put("http.instances", INSTANCES);
+        // every request has to reach the handlers, not the shared listing cache
+        instanceConfig.getJsonObject("items").getJsonObject("cache").put("enabled", false);
+        return vertx.deployVerticle(() -> new MainVerticle(vertx, mockMongoClient, instanceConfig), getDeploymentOptions(instanceConfig))
+          .compose(deploymentId -> fireRequests(vertx, token)
+            .eventually(() -> vertx.undeploy(deploymentId)));
+      })
+      .onComplete(testContext.succeeding(v -> testContext.verify(() -> {
+        assertTrue(eventLoops.size() > 1, "Requests should be served by more than one event loop, not " + eventLoops);
+        testContext.completeNow();
+      })));
+  }
+
+  private Future<Void> fireRequests(Vertx vertx, String token) {
+    HttpClient client = vertx.createHttpClient(new HttpClientOptions(), new PoolOptions().setHttp1MaxSize(CONNECTIONS));
+    List<Future<Integer>> responses = new ArrayList<>(REQUESTS);
+    for (int i = 0; i < REQUESTS; i++) {
+      responses.add(client.request(HttpMethod.GET, 3000, "localhost", "/items")
+        .compose(req -> req.putHeader("Authorization", "Bearer " + token).send())
+        .map(response -> response.statusCode()));
+    }
+    return Future.all(responses).<Void>map(all -> {
+      for (int i = 0; i < REQUESTS; i++) {
+        assertEquals(200, (int) all.<Integer>resultAt(i));
+      }
+      return null;
+    }).eventually(() -> client.close());
+  }
+
+  private JWTAuth initJWTAuth(JsonObject jwtConfig, Vertx vertx) {
+    return JWTAuth.create(vertx, new JWTAuthOptions()
+      .addPubSecKey(new PubSecKeyOptions()
+        .setAlgorithm("HS256")
+        .setBuffer(jwtConfig.getString("secret"))
+      ));
+  }
+}
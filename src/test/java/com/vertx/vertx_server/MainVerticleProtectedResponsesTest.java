@@ -1,5 +1,7 @@
 package com.vertx.vertx_server;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import io.vertx.config.ConfigRetriever;
 import io.vertx.config.ConfigRetrieverOptions;
 import io.vertx.config.ConfigStoreOptions;
@@ -9,13 +11,19 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.JWTOptions;
 import io.vertx.ext.auth.PubSecKeyOptions;
 import io.vertx.ext.auth.jwt.JWTAuth;
 import io.vertx.ext.auth.jwt.JWTAuthOptions;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
 import io.vertx.junit5.Timeout;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
@@ -26,15 +34,23 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.clearAllCaches;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(VertxExtension.class)
 public class MainVerticleProtectedResponsesTest {
@@ -51,6 +67,8 @@ public class MainVerticleProtectedResponsesTest {
       if (asyncResult.succeeded()) {
         JsonObject config = asyncResult.result();
         JsonObject jwtConfig = config.getJsonObject("jwt");
+        config.getJsonObject("items").getJsonObject("etag").put("enabled", true);
+        config.getJsonObject("http.server").getJsonObject("compression").put("enabled", true);
         token = initJWTAuth(jwtConfig, vertx).generateToken(
           new JsonObject().put("ownerId", "eb5c7783-b3e4-4466-b281-13acb9990565"),
           new JWTOptions().setExpiresInSeconds(5)
@@ -145,10 +163,10 @@ public class MainVerticleProtectedResponsesTest {
   void testGetUsersItemsWithJwtSuccess(Vertx vertx, VertxTestContext testContext) {
 
     doAnswer(invocation -> {
-      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(2);
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
       handler.handle(Future.succeededFuture(new ArrayList<>()));
       return null;
-    }).when(mockMongoClient).find(eq("items"), any(JsonObject.class), any());
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
 
     HttpClient client = vertx.createHttpClient();
     client.request(HttpMethod.GET, 3000, "localhost", "/items")
@@ -161,6 +179,174 @@ public class MainVerticleProtectedResponsesTest {
       })));
   }
 
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void testGetUsersItemsAsCbor(Vertx vertx, VertxTestContext testContext) {
+    JsonObject item = new JsonObject().put("id", "6b1f4b2e-0d0f-4d3b-9b7e-1f0c2a3d4e5f").put("name", "NewItem");
+    doAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(Collections.singletonList(item)));
+      return null;
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+
+    HttpClient client = vertx.createHttpClient();
+    client.request(HttpMethod.GET, 3000, "localhost", "/items")
+      .compose(req -> req.putHeader("Authorization", "Bearer " + token)
+        .putHeader("Accept", "application/json;q=0.5, application/cbor")
+        .send()
+        .compose(response -> response.body().map(body -> {
+          testContext.verify(() -> {
+            assertEquals(200, response.statusCode());
+            assertEquals("application/cbor", response.getHeader("Content-Type"));
+            assertEquals("Accept", response.getHeader("Vary"));
+            List<?> items = new ObjectMapper(new CBORFactory()).readValue(body.getBytes(), List.class);
+            assertEquals(Collections.singletonList(item.getMap()), items);
+          });
+          return body;
+        })))
+      .onComplete(testContext.succeedingThenComplete());
+  }
+
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void testGetUsersItemsNotModified(Vertx vertx, VertxTestContext testContext) {
+    doAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(Collections.singletonList(new JsonObject().put("name", "NewItem"))));
+      return null;
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+
+    HttpClient client = vertx.createHttpClient();
+    client.request(HttpMethod.GET, 3000, "localhost", "/items")
+      .compose(req -> req.putHeader("Authorization", "Bearer " + token).send())
+      .compose(first -> client.request(HttpMethod.GET, 3000, "localhost", "/items")
+        .compose(req -> req.putHeader("Authorization", "Bearer " + token)
+          .putHeader("If-None-Match", first.getHeader("ETag"))
+          .send()
+          .compose(second -> second.body().map(body -> {
+            testContext.verify(() -> {
+              assertEquals(304, second.statusCode());
+              assertEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+              assertEquals(0, body.length());
+              verify(mockMongoClient, times(1)).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+            });
+            return body;
+          }))))
+      .onComplete(testContext.succeedingThenComplete());
+  }
+
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void testGetUsersItemsCompressedWhenLarge(Vertx vertx, VertxTestContext testContext) {
+    List<JsonObject> items = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      items.add(new JsonObject().put("name", "item-" + i));
+    }
+    doAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(items));
+      return null;
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+
+    HttpClient client = vertx.createHttpClient();
+    client.request(HttpMethod.GET, 3000, "localhost", "/items")
+      .compose(req -> req.putHeader("Authorization", "Bearer " + token)
+        .putHeader("Accept-Encoding", "gzip")
+        .send()
+        .compose(response -> response.body().map(body -> {
+          testContext.verify(() -> {
+            assertEquals(200, response.statusCode());
+            assertEquals("gzip", response.getHeader("Content-Encoding"));
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body.getBytes()))) {
+              assertEquals(new JsonArray(items), new JsonArray(Buffer.buffer(in.readAllBytes())));
+            }
+          });
+          return body;
+        })))
+      .onComplete(testContext.succeedingThenComplete());
+  }
+
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void testGetUsersItemsNotCompressedWhenSmall(Vertx vertx, VertxTestContext testContext) {
+    doAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(Collections.singletonList(new JsonObject().put("name", "NewItem"))));
+      return null;
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+
+    HttpClient client = vertx.createHttpClient();
+    client.request(HttpMethod.GET, 3000, "localhost", "/items")
+      .compose(req -> req.putHeader("Authorization", "Bearer " + token)
+        .putHeader("Accept-Encoding", "gzip")
+        .send()
+        .compose(response -> response.body().map(body -> {
+          testContext.verify(() -> {
+            assertEquals(200, response.statusCode());
+            assertNull(response.getHeader("Content-Encoding"));
+            assertEquals("[{\"name\":\"NewItem\"}]", body.toString());
+          });
+          return body;
+        })))
+      .onComplete(testContext.succeedingThenComplete());
+  }
+
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void testGetUsersItemsOverClearTextHttp2(Vertx vertx, VertxTestContext testContext) {
+    doAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(new ArrayList<>()));
+      return null;
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+
+    HttpClient client = vertx.createHttpClient(new HttpClientOptions()
+      .setProtocolVersion(HttpVersion.HTTP_2)
+      .setHttp2ClearTextUpgrade(false));
+    client.request(HttpMethod.GET, 3000, "localhost", "/items")
+      .compose(req -> req.putHeader("Authorization", "Bearer " + token).send())
+      .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+        assertEquals(200, response.statusCode());
+        assertEquals(HttpVersion.HTTP_2, response.version());
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void testPostItemsBatchNdjsonWithJwtSuccess(Vertx vertx, VertxTestContext testContext) {
+    when(mockMongoClient.bulkWriteWithOptions(eq("items"), anyList(), any(BulkWriteOptions.class)))
+      .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+
+    HttpClient client = vertx.createHttpClient();
+    client.request(HttpMethod.POST, 3000, "localhost", "/items/batch")
+      .compose(req -> req
+        .putHeader("Authorization", "Bearer " + token)
+        .putHeader("content-type", "application/x-ndjson")
+        .send("{\"name\":\"first\"}\n{\"name\":\"second\"}\n")
+        .compose(response -> response.body().map(body -> {
+          assertEquals(200, response.statusCode());
+          return new JsonArray(body);
+        })))
+      .onComplete(testContext.succeeding(results -> testContext.verify(() -> {
+        assertEquals(2, results.size());
+        assertEquals(201, results.getJsonObject(1).getInteger("status"));
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void testPostItemsBatchWithoutJwt(Vertx vertx, VertxTestContext testContext) {
+    HttpClient client = vertx.createHttpClient();
+    client.request(HttpMethod.POST, 3000, "localhost", "/items/batch")
+      .compose(req -> req.send("[]"))
+      .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+        assertEquals(401, response.statusCode());
+        testContext.completeNow();
+      })));
+  }
+
   private JWTAuth initJWTAuth(JsonObject jwtConfig, Vertx vertx) {
     return JWTAuth.create(vertx, new JWTAuthOptions()
       .addPubSecKey(new PubSecKeyOptions()
@@ -1,5 +1,8 @@
 package com.vertx.vertx_server;
 
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
 import io.vertx.config.ConfigRetriever;
 import io.vertx.config.ConfigRetrieverOptions;
 import io.vertx.core.AsyncResult;
@@ -14,6 +17,7 @@ import io.vertx.ext.mongo.MongoClient;
 import io.vertx.junit5.Timeout;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
+import org.bson.BsonDocument;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,24 +26,37 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import static com.vertx.vertx_server.MainVerticle.getConfigRetrieverOptions;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(VertxExtension.class)
 public class MainVerticleResponsesTest {
   private static final String LOCALHOST = "localhost";
   private static final String REGISTER_ENDPOINT = "/register";
+  private static final String LOGIN_ENDPOINT = "/login";
   private static final String CONTENT_TYPE = "content-type";
   private static final String APPLICATION_JSON = "application/json";
   private static final String LOGIN = "login";
   private static final String PASSWORD = "password";
 
+  private static final int LOGIN_ATTEMPTS = 5;
+
   private Vertx vertx;
+  private JsonObject config;
   @Mock
   private MongoClient mockMongoClient;
 
@@ -51,7 +68,13 @@ public class MainVerticleResponsesTest {
     ConfigRetrieverOptions options = getConfigRetrieverOptions();
     ConfigRetriever configRetriever = ConfigRetriever.create(vertx, options);
     configRetriever.getConfig(asyncResult -> {
-      vertx.deployVerticle(new MainVerticle(vertx, mockMongoClient, asyncResult.result()), testContext.succeedingThenComplete());
+      config = asyncResult.result();
+      config.put("rate.limit", new JsonObject()
+        .put("enabled", true)
+        .put("key.by.peer", true)
+        .put("client", new JsonObject().put("capacity", 100).put("refill.per.second", 10))
+        .put("login", new JsonObject().put("capacity", LOGIN_ATTEMPTS).put("refill.per.second", 0.1)));
+      vertx.deployVerticle(new MainVerticle(vertx, mockMongoClient, config), testContext.succeedingThenComplete());
     });
   }
 
@@ -81,16 +104,10 @@ public class MainVerticleResponsesTest {
       .put(PASSWORD, "testPass");
 
     doAnswer(invocation -> {
-      Handler<AsyncResult<JsonObject>> handler = invocation.getArgument(3);
-      handler.handle(Future.succeededFuture(null));
-      return null;
-    }).when(mockMongoClient).findOne(eq("users"), any(JsonObject.class),eq(null), any());
-
-    doAnswer(invocation -> {
-      Handler<AsyncResult<Void>> handler = invocation.getArgument(2);
+      Handler<AsyncResult<String>> handler = invocation.getArgument(2);
       handler.handle(Future.succeededFuture());
       return null;
-    }).when(mockMongoClient).save(eq("users"), any(JsonObject.class), any());
+    }).when(mockMongoClient).insert(eq("users"), any(JsonObject.class), any());
 
     client.request(HttpMethod.POST, 3000, LOCALHOST, REGISTER_ENDPOINT)
       .compose(req -> req.putHeader(CONTENT_TYPE, APPLICATION_JSON)
@@ -101,6 +118,24 @@ public class MainVerticleResponsesTest {
       })));
   }
 
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void httpServerCheckRegisterBodyTooLargeResponse(Vertx vertx, VertxTestContext testContext) {
+    HttpClient client = vertx.createHttpClient();
+    JsonObject requestBody = new JsonObject()
+      .put(LOGIN, "testUser@mail.com")
+      .put(PASSWORD, "x".repeat(128 * 1024));
+
+    client.request(HttpMethod.POST, 3000, LOCALHOST, REGISTER_ENDPOINT)
+      .compose(req -> req.putHeader(CONTENT_TYPE, APPLICATION_JSON)
+        .send(Buffer.buffer(requestBody.encode())))
+      .onComplete(testContext.succeeding(response -> testContext.verify(() -> {
+        assertEquals(413, response.statusCode());
+        verify(mockMongoClient, never()).insert(eq("users"), any(JsonObject.class), any());
+        testContext.completeNow();
+      })));
+  }
+
   @Test
   @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
   void httpServerCheckRegisterNotEmailResponse(Vertx vertx, VertxTestContext testContext) {
@@ -118,6 +153,70 @@ public class MainVerticleResponsesTest {
       })));
   }
 
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void httpServerCheckLoginWithoutBodyResponse(Vertx vertx, VertxTestContext testContext) {
+    HttpClient client = vertx.createHttpClient();
+
+    client.request(HttpMethod.POST, 3000, LOCALHOST, LOGIN_ENDPOINT)
+      .compose(req -> req.putHeader(CONTENT_TYPE, APPLICATION_JSON).send())
+      .compose(response -> response.body().map(body -> {
+        assertEquals(400, response.statusCode());
+        assertEquals(APPLICATION_JSON, response.getHeader(CONTENT_TYPE));
+        return new JsonObject(body);
+      }))
+      .onComplete(testContext.succeeding(error -> testContext.verify(() -> {
+        assertEquals("Body must be a JSON object.", error.getString("error"));
+        verify(mockMongoClient, never()).findOne(eq("users"), any(), any(), any());
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.SECONDS)
+  void httpServerCheckLoginAttemptsAreThrottled(Vertx vertx, VertxTestContext testContext) {
+    doAnswer(invocation -> {
+      Handler<AsyncResult<JsonObject>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture());
+      return null;
+    }).when(mockMongoClient).findOne(eq("users"), any(JsonObject.class), any(), any());
+
+    HttpClient client = vertx.createHttpClient();
+    JsonObject requestBody = new JsonObject()
+      .put(LOGIN, "testUser@mail.com")
+      .put(PASSWORD, "wrongPass");
+    List<Integer> statusCodes = new ArrayList<>();
+    Future<Void> attempts = Future.succeededFuture();
+    for (int i = 0; i <= LOGIN_ATTEMPTS; i++) {
+      attempts = attempts
+        .compose(v -> client.request(HttpMethod.POST, 3000, LOCALHOST, LOGIN_ENDPOINT))
+        .compose(req -> req.putHeader(CONTENT_TYPE, APPLICATION_JSON).send(Buffer.buffer(requestBody.encode())))
+        .map(response -> {
+          statusCodes.add(response.statusCode());
+          return null;
+        });
+    }
+
+    attempts.onComplete(testContext.succeeding(v -> testContext.verify(() -> {
+      assertEquals(LOGIN_ATTEMPTS, Collections.frequency(statusCodes, 401));
+      assertEquals(429, statusCodes.get(LOGIN_ATTEMPTS));
+      verify(mockMongoClient, times(LOGIN_ATTEMPTS)).findOne(eq("users"), any(JsonObject.class), any(), any());
+      testContext.completeNow();
+    })));
+  }
+
+  @Test
+  void httpServerCheckRateLimitNeedsClientAddressSource(Vertx vertx, VertxTestContext testContext) {
+    JsonObject peerKeyed = config.copy();
+    peerKeyed.getJsonObject("rate.limit").remove("key.by.peer");
+
+    vertx.deployVerticle(new MainVerticle(vertx, mockMongoClient, peerKeyed))
+      .onComplete(testContext.failing(cause -> testContext.verify(() -> {
+        assertTrue(cause.getMessage().contains("address.header"), cause.getMessage());
+        testContext.completeNow();
+      })));
+  }
+
   @Test
   @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
   void httpServerCheckRegisterEmptyLoginResponse(Vertx vertx, VertxTestContext testContext) {
@@ -161,10 +260,10 @@ public class MainVerticleResponsesTest {
         .put(PASSWORD, "testPass");
 
     doAnswer(invocation -> {
-      Handler<AsyncResult<JsonObject>> handler = invocation.getArgument(3);
-      handler.handle(Future.succeededFuture(new JsonObject()));
+      Handler<AsyncResult<String>> handler = invocation.getArgument(2);
+      handler.handle(Future.failedFuture(duplicateKeyError()));
       return null;
-    }).when(mockMongoClient).findOne(eq("users"), any(JsonObject.class),eq(null), any());
+    }).when(mockMongoClient).insert(eq("users"), any(JsonObject.class), any());
 
       client.request(HttpMethod.POST, 3000, LOCALHOST, REGISTER_ENDPOINT)
         .compose(req -> req.putHeader(CONTENT_TYPE, APPLICATION_JSON)
@@ -174,4 +273,45 @@ public class MainVerticleResponsesTest {
           testContext.completeNow();
         })));
   }
+
+  @Test
+  @Timeout(value = 10, timeUnit = TimeUnit.SECONDS)
+  void httpServerCheckConcurrentRegistrationsOfSameLogin(Vertx vertx, VertxTestContext testContext) {
+    // behaves like the unique index on users.login
+    Set<String> logins = ConcurrentHashMap.newKeySet();
+    doAnswer(invocation -> {
+      JsonObject user = invocation.getArgument(1);
+      Handler<AsyncResult<String>> handler = invocation.getArgument(2);
+      handler.handle(logins.add(user.getString(LOGIN))
+        ? Future.succeededFuture()
+        : Future.failedFuture(duplicateKeyError()));
+      return null;
+    }).when(mockMongoClient).insert(eq("users"), any(JsonObject.class), any());
+
+    HttpClient client = vertx.createHttpClient();
+    JsonObject requestBody = new JsonObject()
+      .put(LOGIN, "testUser@mail.com")
+      .put(PASSWORD, "testPass");
+    List<Future<Integer>> registrations = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      registrations.add(client.request(HttpMethod.POST, 3000, LOCALHOST, REGISTER_ENDPOINT)
+        .compose(req -> req.putHeader(CONTENT_TYPE, APPLICATION_JSON)
+          .send(Buffer.buffer(requestBody.encode())))
+        .map(response -> response.statusCode()));
+    }
+
+    Future.all(registrations).onComplete(testContext.succeeding(all -> testContext.verify(() -> {
+      List<Integer> statusCodes = all.list();
+      assertEquals(1, Collections.frequency(statusCodes, 201));
+      assertEquals(7, Collections.frequency(statusCodes, 400));
+      verify(mockMongoClient, never()).findOne(eq("users"), any(), any(), any());
+      testContext.completeNow();
+    })));
+  }
+
+  private static MongoWriteException duplicateKeyError() {
+    return new MongoWriteException(
+      new WriteError(11000, "E11000 duplicate key error collection: users index: login_unique", new BsonDocument()),
+      new ServerAddress());
+  }
 }
@@ -0,0 +1,52 @@
+package com.vertx.vertx_server.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of registration and login hashing for the BCrypt log rounds that can be
+ * set with {@code credentials.bcrypt.log.rounds}. Every extra round doubles the
+ * time a credential worker is busy per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+
+  private static final String PASSWORD = "testPass";
+
+  @Param({"4", "8", "10", "12"})
+  public int logRounds;
+
+  private String hashed;
+
+  @Setup
+  public void setup() {
+    hashed = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(logRounds));
+  }
+
+  @Benchmark
+  public String hash() {
+    return BCrypt.hashpw(PASSWORD, BCrypt.gensalt(logRounds));
+  }
+
+  @Benchmark
+  public boolean verify() {
+    return BCrypt.checkpw(PASSWORD, hashed);
+  }
+}
@@ -0,0 +1,81 @@
+package com.vertx.vertx_server.benchmarks;
+
+import com.vertx.vertx_server.model.Item;
+import com.vertx.vertx_server.validation.RequestValidator;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Per-request validation and serialization work done before anything is sent
+ * to Mongo or BCrypt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerValidationBenchmark {
+
+  private final JsonObject itemBody = new JsonObject().put("name", "NewItem");
+  private final JsonObject validRegistration = new JsonObject()
+    .put("login", "testUser@mail.com")
+    .put("password", "testPass");
+  private final JsonObject invalidRegistration = new JsonObject()
+    .put("login", "testUser")
+    .put("password", "testPass");
+  private final UUID ownerId = UUID.fromString("eb5c7783-b3e4-4466-b281-13acb9990565");
+
+  @Benchmark
+  public JsonObject addItemValidationAndMapping() {
+    if (RequestValidator.ITEM.validate(itemBody) != null) {
+      return null;
+    }
+    return new Item(UUID.randomUUID(), ownerId, itemBody.getString("name")).toJson();
+  }
+
+  /**
+   * The checks {@code UserHandler.handleRegister} did inline, with the email
+   * pattern compiled on every request.
+   */
+  @Benchmark
+  public boolean registrationRecompiledPatternValid() {
+    return recompiledPatternCheck(validRegistration);
+  }
+
+  @Benchmark
+  public boolean registrationRecompiledPatternInvalid() {
+    return recompiledPatternCheck(invalidRegistration);
+  }
+
+  @Benchmark
+  public String registrationValidatorValid() {
+    return RequestValidator.REGISTER.validate(validRegistration);
+  }
+
+  @Benchmark
+  public String registrationValidatorInvalid() {
+    return RequestValidator.REGISTER.validate(invalidRegistration);
+  }
+
+  private static boolean recompiledPatternCheck(JsonObject body) {
+    String login = body.getString("login");
+    String password = body.getString("password");
+    if (login == null || password == null || login.isEmpty() || password.isEmpty()) {
+      return false;
+    }
+    return Pattern.compile("[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,4}").matcher(login).matches();
+  }
+}
@@ -0,0 +1,32 @@
+package com.vertx.vertx_server.benchmarks;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic stand-ins for documents of the {@code items} collection.
+ */
+final class ItemFixtures {
+
+  static final String OWNER_ID = "eb5c7783-b3e4-4466-b281-13acb9990565";
+
+  private ItemFixtures() {
+  }
+
+  static List<JsonObject> documents(int count) {
+    Random random = new Random(42);
+    List<JsonObject> documents = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      documents.add(new JsonObject()
+        .put("_id", String.format("%024x", i))
+        .put("id", new UUID(random.nextLong(), random.nextLong()).toString())
+        .put("owner", OWNER_ID)
+        .put("name", "item-" + i));
+    }
+    return documents;
+  }
+}
@@ -0,0 +1,52 @@
+package com.vertx.vertx_server.benchmarks;
+
+import com.vertx.vertx_server.handler.ItemFormat;
+import com.vertx.vertx_server.handler.ItemListEncoder;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding time of a listing in each {@link ItemFormat}. The size of the
+ * encoded listing is printed once per trial, as JMH has no column for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemFormatBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int items;
+
+  @Param({"JSON", "CBOR", "SMILE"})
+  public ItemFormat format;
+
+  private List<JsonObject> documents;
+
+  @Setup
+  public void setup() {
+    documents = ItemFixtures.documents(items);
+    System.out.println(format + " listing of " + items + " items: " + encode().length() + " bytes");
+  }
+
+  @Benchmark
+  public Buffer encode() {
+    return ItemListEncoder.encode(documents, format);
+  }
+}
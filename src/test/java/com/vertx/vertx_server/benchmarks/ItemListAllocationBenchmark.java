@@ -0,0 +1,65 @@
+package com.vertx.vertx_server.benchmarks;
+
+import com.vertx.vertx_server.handler.ItemListEncoder;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per listed item of the listing encodings. Every invocation encodes
+ * {@value #ITEMS} items and counts as that many operations, so with
+ * {@code -prof gc} the {@code gc.alloc.rate.norm} column reads as bytes
+ * allocated per item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemListAllocationBenchmark {
+
+  private static final int ITEMS = 1000;
+
+  private List<JsonObject> documents;
+
+  @Setup
+  public void setup() {
+    documents = ItemFixtures.documents(ITEMS);
+  }
+
+  /**
+   * {@code List<JsonObject>} to {@code String} to UTF-8 bytes.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ITEMS)
+  public Buffer listToString() {
+    return Buffer.buffer(documents.toString());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ITEMS)
+  public Buffer jsonArrayToBuffer() {
+    return new JsonArray(documents).toBuffer();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ITEMS)
+  public Buffer generatorToBuffer() {
+    return ItemListEncoder.encode(documents);
+  }
+}
@@ -0,0 +1,66 @@
+package com.vertx.vertx_server.benchmarks;
+
+import com.vertx.vertx_server.handler.ItemListEncoder;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of a listing as returned by {@code mongoClient.find} in
+ * {@code ItemHandler.findItems}. The documents are generated from a fixed seed
+ * instead of read from Mongo so runs are comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemListEncodingBenchmark {
+
+  @Param({"10", "1000", "10000"})
+  public int items;
+
+  private List<JsonObject> documents;
+
+  @Setup
+  public void setup() {
+    documents = ItemFixtures.documents(items);
+  }
+
+  /**
+   * What {@code findItems} did before listings were cached as buffers.
+   */
+  @Benchmark
+  public Buffer listToString() {
+    return Buffer.buffer(documents.toString());
+  }
+
+  @Benchmark
+  public Buffer jsonArrayToBuffer() {
+    return new JsonArray(documents).toBuffer();
+  }
+
+  /**
+   * What {@code findItems} does now, the documents carry the fields that are
+   * not projected so the comparison stays on the same input.
+   */
+  @Benchmark
+  public Buffer generatorToBuffer() {
+    return ItemListEncoder.encode(documents);
+  }
+}
@@ -0,0 +1,102 @@
+package com.vertx.vertx_server.benchmarks;
+
+import com.vertx.vertx_server.model.Item;
+import com.vertx.vertx_server.model.Uuids;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the item representations. The {@code retain*} benchmarks build
+ * {@value #ITEMS} items per invocation, so with {@code -prof gc} their
+ * {@code gc.alloc.rate.norm} is the heap taken by one item, name excluded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemRepresentationBenchmark {
+
+  private static final int ITEMS = 1000;
+  private static final String NAME = "NewItem";
+
+  private final long[] bits = new long[ITEMS * 2];
+  private Item item;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = random.nextLong();
+    }
+    item = new Item(UUID.randomUUID(), UUID.fromString(ItemFixtures.OWNER_ID), NAME);
+  }
+
+  @Benchmark
+  public JsonObject mapFrom() {
+    return JsonObject.mapFrom(item);
+  }
+
+  @Benchmark
+  public JsonObject toJson() {
+    return item.toJson();
+  }
+
+  @Benchmark
+  public JsonObject toBinaryDocument() {
+    return new JsonObject()
+      .put("id", Uuids.toBinary(item.getId()))
+      .put("owner", Uuids.toBinary(item.getOwner()))
+      .put("name", item.getName());
+  }
+
+  /**
+   * The former layout, with the UUIDs as objects.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ITEMS)
+  public Object[] retainUuidObjects() {
+    Object[] items = new Object[ITEMS];
+    for (int i = 0; i < ITEMS; i++) {
+      items[i] = new UuidItem(new UUID(bits[i], bits[ITEMS + i]), new UUID(bits[ITEMS + i], bits[i]), NAME);
+    }
+    return items;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ITEMS)
+  public Object[] retainItems() {
+    Object[] items = new Object[ITEMS];
+    for (int i = 0; i < ITEMS; i++) {
+      items[i] = new Item(bits[i], bits[ITEMS + i], bits[ITEMS + i], bits[i], NAME);
+    }
+    return items;
+  }
+
+  private static final class UuidItem {
+    private final UUID id;
+    private final UUID owner;
+    private final String name;
+
+    UuidItem(UUID id, UUID owner, String name) {
+      this.id = id;
+      this.owner = owner;
+      this.name = name;
+    }
+  }
+}
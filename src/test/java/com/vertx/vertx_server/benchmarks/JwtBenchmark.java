@@ -0,0 +1,67 @@
+package com.vertx.vertx_server.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.PubSecKeyOptions;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.authentication.TokenCredentials;
+import io.vertx.ext.auth.jwt.JWTAuth;
+import io.vertx.ext.auth.jwt.JWTAuthOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuing on login and verification on every protected request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+  private final JsonObject claims = new JsonObject().put("ownerId", "eb5c7783-b3e4-4466-b281-13acb9990565");
+  private final JWTOptions options = new JWTOptions().setExpiresInSeconds(60 * 5);
+
+  private Vertx vertx;
+  private JWTAuth jwtAuth;
+  private String token;
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    jwtAuth = JWTAuth.create(vertx, new JWTAuthOptions()
+      .addPubSecKey(new PubSecKeyOptions()
+        .setAlgorithm("HS256")
+        .setBuffer("Y29tLm15YXBwLnZlcnR4LmpzZWtyZXRrZXlmcm9tT3BlblNTTA==")));
+    token = jwtAuth.generateToken(claims, options);
+  }
+
+  @TearDown
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Benchmark
+  public String generate() {
+    return jwtAuth.generateToken(claims, options);
+  }
+
+  @Benchmark
+  public User verify() {
+    return jwtAuth.authenticate(new TokenCredentials(token)).result();
+  }
+}
@@ -0,0 +1,41 @@
+package com.vertx.vertx_server.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+  private static final int ENTRIES = 10_000;
+
+  @Test
+  public void addedValuesAreAlwaysFoundTest() {
+    BloomFilter filter = new BloomFilter(ENTRIES, 0.01);
+    for (int i = 0; i < ENTRIES; i++) {
+      filter.add("user" + i + "@mail.com");
+    }
+    for (int i = 0; i < ENTRIES; i++) {
+      assertTrue(filter.mightContain("user" + i + "@mail.com"));
+    }
+    assertEquals(ENTRIES, filter.insertions());
+  }
+
+  @Test
+  public void falsePositiveRateStaysNearTargetTest() {
+    BloomFilter filter = new BloomFilter(ENTRIES, 0.01);
+    for (int i = 0; i < ENTRIES; i++) {
+      filter.add("user" + i + "@mail.com");
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < ENTRIES; i++) {
+      if (filter.mightContain("other" + i + "@mail.com")) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < ENTRIES * 0.02, "false positives: " + falsePositives);
+    // 9.6 bits per entry for 1%
+    assertEquals(95872, filter.bitSize());
+    assertEquals(7, filter.hashCount());
+  }
+}
@@ -0,0 +1,55 @@
+package com.vertx.vertx_server.cache;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ItemListCacheTest {
+
+  private static final String OWNER_ID = "eb5c7783-b3e4-4466-b281-13acb9990565";
+
+  @Test
+  public void putGetAndInvalidateTest() {
+    ItemListCache cache = new ItemListCache(new JsonObject());
+    Buffer items = Buffer.buffer("[{\"name\":\"first\"}]");
+
+    assertNull(cache.get(OWNER_ID));
+    cache.put(OWNER_ID, items, cache.readStamp());
+    assertEquals(items, cache.get(OWNER_ID));
+
+    cache.invalidate(OWNER_ID);
+    assertNull(cache.get(OWNER_ID));
+
+    JsonObject metrics = cache.metrics();
+    assertEquals(1, metrics.getLong("hits"));
+    assertEquals(2, metrics.getLong("misses"));
+  }
+
+  @Test
+  public void readStartedBeforeInvalidationIsNotCachedTest() {
+    ItemListCache cache = new ItemListCache(new JsonObject());
+    long readStamp = cache.readStamp();
+
+    cache.invalidate(OWNER_ID);
+    cache.put(OWNER_ID, Buffer.buffer("[]"), readStamp);
+
+    assertNull(cache.get(OWNER_ID));
+  }
+
+  @Test
+  public void invalidationDropsEveryVariantTest() {
+    ItemListCache cache = new ItemListCache(new JsonObject());
+    cache.put(OWNER_ID, 0, Buffer.buffer("[]"), cache.readStamp());
+    cache.put(OWNER_ID, 2, Buffer.buffer(new byte[]{(byte) 0x80}), cache.readStamp());
+
+    assertEquals(Buffer.buffer("[]"), cache.get(OWNER_ID));
+    assertNull(cache.get(OWNER_ID, 1));
+
+    cache.invalidate(OWNER_ID);
+    assertNull(cache.get(OWNER_ID, 0));
+    assertNull(cache.get(OWNER_ID, 2));
+  }
+}
@@ -0,0 +1,163 @@
+package com.vertx.vertx_server.cache;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.test.fakecluster.FakeClusterManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+public class ItemListInvalidationTest {
+
+  private static final String OWNER_ID = "eb5c7783-b3e4-4466-b281-13acb9990565";
+  private static final long MAX_STALE_MS = 500;
+
+  private Vertx writerNode;
+  private Vertx readerNode;
+
+  @BeforeEach
+  void setup(VertxTestContext testContext) {
+    Future.all(clusteredVertx(), clusteredVertx()).onComplete(testContext.succeeding(nodes -> {
+      writerNode = nodes.resultAt(0);
+      readerNode = nodes.resultAt(1);
+      testContext.completeNow();
+    }));
+  }
+
+  @AfterEach
+  void teardown(VertxTestContext testContext) {
+    Future.all(writerNode.close(), readerNode.close()).onComplete(testContext.succeedingThenComplete());
+  }
+
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.SECONDS)
+  void invalidationReachesOtherNodesWithinBoundedWindow(VertxTestContext testContext) {
+    ItemListCache writerCache = new ItemListCache(new JsonObject());
+    ItemListCache readerCache = new ItemListCache(new JsonObject());
+    writerCache.put(OWNER_ID, Buffer.buffer("[]"), writerCache.readStamp());
+    readerCache.put(OWNER_ID, Buffer.buffer("[]"), readerCache.readStamp());
+
+    ItemListInvalidation writerChannel = new ItemListInvalidation(writerNode.eventBus());
+    ItemListInvalidation readerChannel = new ItemListInvalidation(readerNode.eventBus());
+    registered(readerChannel.subscribe(readerCache))
+      .compose(v -> registered(writerChannel.subscribe(writerCache)))
+      .onComplete(testContext.succeeding(v -> {
+        // a read on the reader node that started before the write must not be cached afterwards
+        long staleReadStamp = readerCache.readStamp();
+        long publishedAt = System.nanoTime();
+        writerChannel.publish(OWNER_ID);
+
+        readerNode.setPeriodic(1, timer -> {
+          if (readerCache.get(OWNER_ID) != null) {
+            return;
+          }
+          readerNode.cancelTimer(timer);
+          long staleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - publishedAt);
+          readerCache.put(OWNER_ID, Buffer.buffer("[\"stale\"]"), staleReadStamp);
+          testContext.verify(() -> {
+            assertTrue(staleMs < MAX_STALE_MS, "Stale listing served for " + staleMs + " ms");
+            assertNull(readerCache.get(OWNER_ID));
+            assertNull(writerCache.get(OWNER_ID));
+            testContext.completeNow();
+          });
+        });
+      }));
+  }
+
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.SECONDS)
+  void versionReachesOtherNodesAfterTheirCacheIsInvalidated(VertxTestContext testContext) {
+    ItemListVersions writerVersions = new ItemListVersions(new JsonObject());
+    ItemListVersions readerVersions = new ItemListVersions(new JsonObject());
+    ItemListCache readerCache = new ItemListCache(new JsonObject());
+    readerCache.put(OWNER_ID, Buffer.buffer("[]"), readerCache.readStamp());
+    String staleVersion = readerVersions.current(OWNER_ID);
+
+    ItemListInvalidation writerChannel = new ItemListInvalidation(writerNode.eventBus());
+    ItemListInvalidation readerChannel = new ItemListInvalidation(readerNode.eventBus());
+    registered(readerChannel.subscribe(readerCache, readerVersions))
+      .onComplete(testContext.succeeding(v -> {
+        String published = writerVersions.bump(OWNER_ID);
+        writerChannel.publish(OWNER_ID, published);
+
+        readerNode.setPeriodic(1, timer -> {
+          if (readerVersions.current(OWNER_ID).equals(staleVersion)) {
+            return;
+          }
+          readerNode.cancelTimer(timer);
+          testContext.verify(() -> {
+            assertEquals(published, readerVersions.current(OWNER_ID));
+            assertNull(readerCache.get(OWNER_ID));
+            testContext.completeNow();
+          });
+        });
+      }));
+  }
+
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.SECONDS)
+  void sharedCacheIsSubscribedOncePerProcess(VertxTestContext testContext) {
+    ItemListCache cache = new ItemListCache(new JsonObject());
+    List<Boolean> subscriptions = new CopyOnWriteArrayList<>();
+    Supplier<Verticle> verticle = () -> new AbstractVerticle() {
+      private MessageConsumer<String> consumer;
+
+      @Override
+      public void start() {
+        consumer = ItemListInvalidation.subscribeOnce(vertx, cache, null);
+        subscriptions.add(consumer != null);
+      }
+
+      @Override
+      public void stop(Promise<Void> stopPromise) {
+        if (consumer == null) {
+          stopPromise.complete();
+        } else {
+          ItemListInvalidation.unsubscribe(vertx, consumer).onComplete(stopPromise);
+        }
+      }
+    };
+
+    writerNode.deployVerticle(verticle, new DeploymentOptions().setInstances(3))
+      .compose(writerNode::undeploy)
+      .compose(v -> writerNode.deployVerticle(verticle, new DeploymentOptions()))
+      .onComplete(testContext.succeeding(id -> testContext.verify(() -> {
+        assertEquals(1, Collections.frequency(subscriptions.subList(0, 3), true));
+        assertTrue(subscriptions.get(3), "The next deployment should subscribe again");
+        testContext.completeNow();
+      })));
+  }
+
+  private static Future<Void> registered(MessageConsumer<String> consumer) {
+    Promise<Void> promise = Promise.promise();
+    consumer.completionHandler(promise);
+    return promise.future();
+  }
+
+  private static Future<Vertx> clusteredVertx() {
+    return Vertx.clusteredVertx(new VertxOptions().setClusterManager(new FakeClusterManager()));
+  }
+}
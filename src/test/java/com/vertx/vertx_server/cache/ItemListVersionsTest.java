@@ -0,0 +1,77 @@
+package com.vertx.vertx_server.cache;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ItemListVersionsTest {
+
+  private static final String OWNER_ID = "eb5c7783-b3e4-4466-b281-13acb9990565";
+
+  @Test
+  void versionOnlyMovesOnChangeTest() {
+    ItemListVersions versions = new ItemListVersions(new JsonObject());
+
+    String first = versions.current(OWNER_ID);
+    assertEquals(first, versions.current(OWNER_ID));
+
+    String bumped = versions.bump(OWNER_ID);
+    assertNotEquals(first, bumped);
+    assertEquals(bumped, versions.current(OWNER_ID));
+  }
+
+  @Test
+  void versionsOfOtherNodesAreAppliedOnceTest() {
+    ItemListVersions writer = new ItemListVersions(new JsonObject());
+    ItemListVersions reader = new ItemListVersions(new JsonObject());
+    reader.current(OWNER_ID);
+
+    String published = writer.bump(OWNER_ID);
+    reader.changed(OWNER_ID, published);
+    reader.changed(OWNER_ID, published);
+    assertEquals(published, reader.current(OWNER_ID));
+
+    // the writer's own message comes back to it after a newer local write
+    String newer = writer.bump(OWNER_ID);
+    writer.changed(OWNER_ID, published);
+    assertEquals(newer, writer.current(OWNER_ID));
+
+    reader.changed(OWNER_ID, null);
+    assertNotEquals(published, reader.current(OWNER_ID));
+  }
+
+  @Test
+  void versionExpiresAfterTtlTest() {
+    AtomicLong now = new AtomicLong();
+    ItemListVersions versions = new ItemListVersions(new JsonObject().put("ttl.seconds", 30), now::get);
+
+    String first = versions.current(OWNER_ID);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(29));
+    assertEquals(first, versions.current(OWNER_ID));
+
+    // a write this node never heard of can only be hidden until then
+    now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    assertNotEquals(first, versions.current(OWNER_ID));
+  }
+
+  @Test
+  void freshVersionsAreNeverReusedTest() {
+    ItemListVersions versions = new ItemListVersions(new JsonObject());
+    Set<String> seen = new HashSet<>();
+
+    // an evicted owner comes back with a fresh version, which must not match an old tag
+    for (int i = 0; i < 100; i++) {
+      assertTrue(seen.add(versions.current("owner-" + i)));
+      assertTrue(seen.add(versions.bump(OWNER_ID)));
+    }
+    assertNotEquals(new ItemListVersions(new JsonObject()).current(OWNER_ID), versions.current("owner-0"));
+  }
+}
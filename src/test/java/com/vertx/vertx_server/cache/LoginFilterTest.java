@@ -0,0 +1,136 @@
+package com.vertx.vertx_server.cache;
+
+import com.vertx.vertx_server.repository.MongoUserRepository;
+import com.vertx.vertx_server.repository.UserRepository;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LoginFilterTest {
+
+  private Vertx vertx;
+
+  @BeforeEach
+  void setup() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterEach
+  void teardown() {
+    vertx.close();
+  }
+
+  @Test
+  public void loadsLoginsPageByPageTest() {
+    MongoClient mongoClient = mock(MongoClient.class);
+    List<List<JsonObject>> pages = Arrays.asList(
+      Arrays.asList(new JsonObject().put("login", "a@mail.com"), new JsonObject().put("login", "b@mail.com")),
+      Collections.singletonList(new JsonObject().put("login", "c@mail.com")));
+    int[] page = {0};
+    when(mongoClient.findWithOptions(eq("users"), any(JsonObject.class), any(FindOptions.class), any())).thenAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(pages.get(page[0]++)));
+      return null;
+    });
+    LoginFilter loginFilter = new LoginFilter(vertx.eventBus(), new JsonObject()
+      .put("expected.entries", 100)
+      .put("load.page.size", 2));
+
+    // nothing is known before the logins are loaded
+    assertTrue(loginFilter.mightExist("unknown@mail.com"));
+    loginFilter.load(new MongoUserRepository(mongoClient));
+
+    ArgumentCaptor<JsonObject> queries = ArgumentCaptor.forClass(JsonObject.class);
+    verify(mongoClient, times(2)).findWithOptions(eq("users"), queries.capture(), any(FindOptions.class), any());
+    assertNull(queries.getAllValues().get(0).getValue("login"));
+    assertEquals("b@mail.com", queries.getAllValues().get(1).getJsonObject("login").getString("$gt"));
+    assertTrue(loginFilter.isLoaded());
+    assertTrue(loginFilter.mightExist("a@mail.com"));
+    assertTrue(loginFilter.mightExist("c@mail.com"));
+    assertFalse(loginFilter.mightExist("unknown@mail.com"));
+
+    loginFilter.registered("unknown@mail.com");
+    assertTrue(loginFilter.mightExist("unknown@mail.com"));
+    assertEquals(1, loginFilter.metrics().getLong("skippedLookups"));
+  }
+
+  @Test
+  public void absentAnswersStopWhenFilterIsTooOldTest() {
+    UserRepository userRepository = mock(UserRepository.class);
+    when(userRepository.findLogins(any(), anyInt()))
+      .thenReturn(Future.succeededFuture(Collections.singletonList("a@mail.com")))
+      .thenReturn(Future.succeededFuture(Arrays.asList("a@mail.com", "b@mail.com")));
+    AtomicLong now = new AtomicLong();
+    LoginFilter loginFilter = new LoginFilter(vertx.eventBus(), new JsonObject()
+      .put("expected.entries", 100)
+      .put("refresh.interval.seconds", 60), now::get);
+
+    loginFilter.load(userRepository);
+    assertFalse(loginFilter.mightExist("b@mail.com"));
+
+    // b registered on a process this one never heard from
+    now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+    assertFalse(loginFilter.isFresh());
+    assertTrue(loginFilter.mightExist("b@mail.com"));
+
+    loginFilter.load(userRepository);
+    assertTrue(loginFilter.isFresh());
+    assertTrue(loginFilter.mightExist("b@mail.com"));
+    assertFalse(loginFilter.mightExist("c@mail.com"));
+  }
+
+  @Test
+  public void loginHeardDuringRebuildIsKeptTest() throws Exception {
+    UserRepository userRepository = mock(UserRepository.class);
+    Promise<List<String>> rebuild = Promise.promise();
+    when(userRepository.findLogins(any(), anyInt()))
+      .thenReturn(Future.succeededFuture(Arrays.asList("a@mail.com", "c@mail.com")))
+      .thenReturn(rebuild.future());
+    LoginFilter loginFilter = new LoginFilter(vertx.eventBus(), new JsonObject().put("expected.entries", 100));
+    loginFilter.load(userRepository);
+    loginFilter.load(userRepository);
+
+    // c registers on another node after the rebuild read past it, while the
+    // current filter already answers for c, as it would for a false positive
+    CompletableFuture<Void> delivered = new CompletableFuture<>();
+    vertx.runOnContext(v -> {
+      assertNotNull(loginFilter.subscribeOnce());
+      assertNull(loginFilter.subscribeOnce());
+      vertx.eventBus().consumer(LoginFilter.ADDRESS, message -> delivered.complete(null))
+        .completionHandler(registered -> vertx.eventBus().publish(LoginFilter.ADDRESS, "c@mail.com"));
+    });
+    delivered.get(5, TimeUnit.SECONDS);
+    rebuild.complete(Collections.singletonList("a@mail.com"));
+
+    assertTrue(loginFilter.mightExist("c@mail.com"));
+  }
+}
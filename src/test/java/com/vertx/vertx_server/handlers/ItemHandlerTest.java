@@ -1,26 +1,40 @@
 package com.vertx.vertx_server.handlers;
 
+import com.vertx.vertx_server.cache.ItemListCache;
+import com.vertx.vertx_server.cache.ItemListVersions;
 import com.vertx.vertx_server.handler.ItemHandler;
+import com.vertx.vertx_server.repository.MongoItemRepository;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.auth.User;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
 import io.vertx.ext.web.RoutingContext;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 public class ItemHandlerTest {
@@ -42,7 +56,7 @@ public class ItemHandlerTest {
   @BeforeEach
   public void setup() {
     MockitoAnnotations.openMocks(this);
-    itemHandler = new ItemHandler(mockMongoClient);
+    itemHandler = new ItemHandler(new MongoItemRepository(mockMongoClient), new JsonObject(), null, null, null);
   }
 
   @AfterEach
@@ -91,8 +105,8 @@ public class ItemHandlerTest {
     when(mockRoutingContext.response()).thenReturn(mockResponse);
     when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
     when(mockResponse.setStatusCode(200)).thenReturn(mockResponse);
-    when(mockMongoClient.find(eq("items"), eq(query), any())).thenAnswer( invocation -> {
-        Handler <AsyncResult<List<JsonObject>>> handler = invocation.getArgument(2);
+    when(mockMongoClient.findWithOptions(eq("items"), eq(query), any(FindOptions.class), any())).thenAnswer( invocation -> {
+        Handler <AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
         handler.handle(Future.succeededFuture(items));
         return null;
       }
@@ -100,17 +114,326 @@ public class ItemHandlerTest {
 
     itemHandler.handleGetItems(mockRoutingContext);
 
-    verify(mockMongoClient, times(1)).find(eq("items"), eq(query), any());
-    verify(mockResponse, times(1)).end((String) argThat( argument -> {
-      JsonArray responseArray = new JsonArray((String) argument);
+    ArgumentCaptor<FindOptions> optionsCaptor = ArgumentCaptor.forClass(FindOptions.class);
+    verify(mockMongoClient, times(1)).findWithOptions(eq("items"), eq(query), optionsCaptor.capture(), any());
+    JsonObject fields = optionsCaptor.getValue().getFields();
+    assertEquals(1, fields.getInteger("id"));
+    assertEquals(1, fields.getInteger("name"));
+    assertEquals(0, fields.getInteger("_id"));
+    verify(mockResponse, times(1)).end((Buffer) argThat( argument -> {
+      JsonArray responseArray = new JsonArray((Buffer) argument);
       JsonObject responseObject = responseArray.getJsonObject(0);
 
       assertEquals(1, responseArray.size());
       assertEquals(item1.getString("id"), responseObject.getString("id"));
-      assertEquals(item1.getString("owner"), responseObject.getString("owner"));
       assertEquals(item1.getString("name"), responseObject.getString("name"));
+      assertFalse(responseObject.containsKey("owner"));
       return true;
     }));
   }
 
+  @Test
+  public void handleGetItemsPageTest() {
+    String ownerId = "eb5c7783-b3e4-4466-b281-13acb9990565";
+    JsonObject principalJson = new JsonObject().put("ownerId", ownerId);
+    User mockUser = mock(User.class);
+    JsonObject first = new JsonObject().put("_id", "a1").put("name", "first");
+    JsonObject second = new JsonObject().put("_id", "a2").put("name", "second");
+
+    when(mockUser.principal()).thenReturn(principalJson);
+    when(mockRoutingContext.user()).thenReturn(mockUser);
+    when(mockRoutingContext.queryParam("limit")).thenReturn(Collections.singletonList("1"));
+    when(mockRoutingContext.queryParam("after")).thenReturn(Collections.singletonList("a0"));
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(200)).thenReturn(mockResponse);
+    when(mockMongoClient.findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any()))
+      .thenAnswer(invocation -> {
+        Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+        handler.handle(Future.succeededFuture(Arrays.asList(first, second)));
+        return null;
+      });
+
+    itemHandler.handleGetItems(mockRoutingContext);
+
+    ArgumentCaptor<JsonObject> queryCaptor = ArgumentCaptor.forClass(JsonObject.class);
+    ArgumentCaptor<FindOptions> optionsCaptor = ArgumentCaptor.forClass(FindOptions.class);
+    verify(mockMongoClient).findWithOptions(eq("items"), queryCaptor.capture(), optionsCaptor.capture(), any());
+    assertEquals("a0", queryCaptor.getValue().getJsonObject("_id").getString("$gt"));
+    assertEquals(2, optionsCaptor.getValue().getLimit());
+    verify(mockResponse, times(1)).end((Buffer) argThat(argument -> {
+      JsonObject page = new JsonObject((Buffer) argument);
+      assertEquals(1, page.getJsonArray("items").size());
+      assertEquals(Collections.singleton("name"), page.getJsonArray("items").getJsonObject(0).fieldNames());
+      assertEquals("a1", page.getString("next"));
+      return true;
+    }));
+  }
+
+  @Test
+  public void handleGetItemsRejectsInvalidLimitTest() {
+    User mockUser = mock(User.class);
+    when(mockUser.principal()).thenReturn(new JsonObject().put("ownerId", UUID.randomUUID().toString()));
+    when(mockRoutingContext.user()).thenReturn(mockUser);
+    when(mockRoutingContext.queryParam("limit")).thenReturn(Collections.singletonList("0"));
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+
+    itemHandler.handleGetItems(mockRoutingContext);
+
+    verify(mockResponse).setStatusCode(400);
+    verifyNoInteractions(mockMongoClient);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void handleGetItemsStreamTest() {
+    User mockUser = mock(User.class);
+    ReadStream<JsonObject> mockStream = mock(ReadStream.class);
+    when(mockUser.principal()).thenReturn(new JsonObject().put("ownerId", UUID.randomUUID().toString()));
+    when(mockRoutingContext.user()).thenReturn(mockUser);
+    when(mockRoutingContext.queryParam("stream")).thenReturn(Collections.singletonList("true"));
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.setChunked(anyBoolean())).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+    when(mockResponse.writeQueueFull()).thenReturn(false, true);
+    when(mockMongoClient.findBatchWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class)))
+      .thenReturn(mockStream);
+
+    itemHandler.handleGetItems(mockRoutingContext);
+
+    ArgumentCaptor<Handler<JsonObject>> itemCaptor = ArgumentCaptor.forClass(Handler.class);
+    ArgumentCaptor<Handler<Void>> endCaptor = ArgumentCaptor.forClass(Handler.class);
+    verify(mockStream).handler(itemCaptor.capture());
+    verify(mockStream).endHandler(endCaptor.capture());
+
+    itemCaptor.getValue().handle(new JsonObject().put("name", "first"));
+    itemCaptor.getValue().handle(new JsonObject().put("name", "second"));
+    endCaptor.getValue().handle(null);
+
+    verify(mockResponse).setChunked(true);
+    verify(mockResponse).write(Buffer.buffer("[{\"name\":\"first\"}"));
+    verify(mockResponse).write(Buffer.buffer(",{\"name\":\"second\"}"));
+    verify(mockStream, times(1)).pause();
+    verify(mockResponse).end(Buffer.buffer("]"));
+  }
+
+  @Test
+  public void handleAddItemsInChunksTest() {
+    itemHandler = new ItemHandler(new MongoItemRepository(mockMongoClient), new JsonObject().put("batch.chunk.size", 1), null, null, null);
+    String batch = new JsonArray()
+      .add(new JsonObject().put("name", "first"))
+      .add(new JsonObject().put("name", ""))
+      .add(new JsonObject().put("name", "third"))
+      .encode();
+    when(mockMongoClient.bulkWriteWithOptions(eq("items"), anyList(), any(BulkWriteOptions.class)))
+      .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+
+    // the body arrives split in the middle of the second item
+    uploadBatch(null, batch.substring(0, 25), batch.substring(25));
+
+    ArgumentCaptor<List<BulkOperation>> operationsCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<BulkWriteOptions> optionsCaptor = ArgumentCaptor.forClass(BulkWriteOptions.class);
+    verify(mockMongoClient, times(2)).bulkWriteWithOptions(eq("items"), operationsCaptor.capture(), optionsCaptor.capture());
+    assertEquals(1, operationsCaptor.getValue().size());
+    assertEquals(false, optionsCaptor.getValue().isOrdered());
+    verify(mockResponse).setStatusCode(200);
+    verify(mockResponse, times(1)).end((String) argThat(argument -> {
+      JsonArray results = new JsonArray((String) argument);
+      assertEquals(3, results.size());
+      assertEquals(201, results.getJsonObject(0).getInteger("status"));
+      assertNotNull(results.getJsonObject(0).getString("id"));
+      assertEquals(400, results.getJsonObject(1).getInteger("status"));
+      assertEquals(201, results.getJsonObject(2).getInteger("status"));
+      return true;
+    }));
+  }
+
+  @Test
+  public void handleAddItemsNdjsonRejectsOnlyInvalidLinesTest() {
+    when(mockMongoClient.bulkWriteWithOptions(eq("items"), anyList(), any(BulkWriteOptions.class)))
+      .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+
+    uploadBatch("application/x-ndjson", "{\"name\":\"first\"}\nnot json\n{\"na", "me\":\"third\"}");
+
+    verify(mockResponse).setStatusCode(200);
+    verify(mockResponse, times(1)).end((String) argThat(argument -> {
+      JsonArray results = new JsonArray((String) argument);
+      assertEquals(3, results.size());
+      assertEquals(201, results.getJsonObject(0).getInteger("status"));
+      assertEquals(400, results.getJsonObject(1).getInteger("status"));
+      assertEquals(201, results.getJsonObject(2).getInteger("status"));
+      return true;
+    }));
+  }
+
+  @Test
+  public void handleAddItemsRejectsOversizedBatchTest() {
+    itemHandler = new ItemHandler(new MongoItemRepository(mockMongoClient), new JsonObject().put("batch.max.bytes", 16), null, null, null);
+
+    uploadBatch(null, "[{\"name\":\"first\"},", "{\"name\":\"second\"}]");
+
+    verify(mockResponse).setStatusCode(413);
+    verify(mockMongoClient, never()).bulkWriteWithOptions(anyString(), anyList(), any(BulkWriteOptions.class));
+  }
+
+  @Test
+  public void handleAddItemsRejectsMalformedContentLengthTest() {
+    User mockUser = mock(User.class);
+    HttpServerRequest mockRequest = mock(HttpServerRequest.class);
+    when(mockUser.principal()).thenReturn(new JsonObject().put("ownerId", UUID.randomUUID().toString()));
+    when(mockRoutingContext.user()).thenReturn(mockUser);
+    when(mockRoutingContext.request()).thenReturn(mockRequest);
+    when(mockRequest.getHeader("Content-Length")).thenReturn("12 bytes");
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+
+    itemHandler.handleAddItems(mockRoutingContext);
+
+    verify(mockResponse).setStatusCode(400);
+    verify(mockResponse).end("Content-Length must be a number of bytes.");
+    verify(mockRequest, never()).resume();
+  }
+
+  @Test
+  public void handleAddItemsRejectsMalformedArrayTest() {
+    uploadBatch(null, "[{\"name\":\"first\"},", "{\"name\"");
+
+    verify(mockResponse).setStatusCode(400);
+    verify(mockResponse).end("Body must be a JSON array or NDJSON.");
+    verify(mockMongoClient, never()).bulkWriteWithOptions(anyString(), anyList(), any(BulkWriteOptions.class));
+  }
+
+  /**
+   * Runs the batch handler against a request that delivers the given chunks.
+   */
+  private void uploadBatch(String contentType, String... chunks) {
+    User mockUser = mock(User.class);
+    HttpServerRequest mockRequest = mock(HttpServerRequest.class);
+    ArgumentCaptor<Handler<Buffer>> chunkHandler = ArgumentCaptor.forClass(Handler.class);
+    ArgumentCaptor<Handler<Void>> endHandler = ArgumentCaptor.forClass(Handler.class);
+
+    when(mockUser.principal()).thenReturn(new JsonObject().put("ownerId", UUID.randomUUID().toString()));
+    when(mockRoutingContext.user()).thenReturn(mockUser);
+    when(mockRoutingContext.request()).thenReturn(mockRequest);
+    when(mockRequest.getHeader("Content-Type")).thenReturn(contentType);
+    when(mockRequest.handler(chunkHandler.capture())).thenReturn(mockRequest);
+    when(mockRequest.endHandler(endHandler.capture())).thenReturn(mockRequest);
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+    when(mockResponse.end(anyString())).thenAnswer(invocation -> {
+      when(mockResponse.ended()).thenReturn(true);
+      return Future.succeededFuture();
+    });
+
+    itemHandler.handleAddItems(mockRoutingContext);
+
+    verify(mockRequest).resume();
+    for (String chunk : chunks) {
+      chunkHandler.getValue().handle(Buffer.buffer(chunk));
+    }
+    endHandler.getValue().handle(null);
+  }
+
+  @Test
+  public void handleGetItemsServedFromCacheTest() {
+    String ownerId = "eb5c7783-b3e4-4466-b281-13acb9990565";
+    ItemListCache cache = new ItemListCache(new JsonObject());
+    itemHandler = new ItemHandler(new MongoItemRepository(mockMongoClient), new JsonObject(), cache, null, null);
+    User mockUser = mock(User.class);
+    List<JsonObject> items = Collections.singletonList(new JsonObject().put("name", "cached"));
+
+    when(mockUser.principal()).thenReturn(new JsonObject().put("ownerId", ownerId));
+    when(mockRoutingContext.user()).thenReturn(mockUser);
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+    when(mockMongoClient.findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any())).thenAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(items));
+      return null;
+    });
+
+    itemHandler.handleGetItems(mockRoutingContext);
+    itemHandler.handleGetItems(mockRoutingContext);
+
+    verify(mockMongoClient, times(1)).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+    verify(mockResponse, times(2)).end(eq(Buffer.buffer("[{\"name\":\"cached\"}]")));
+    assertEquals(1, cache.metrics().getLong("hits"));
+  }
+
+  @Test
+  public void handleAddItemInvalidatesCachedListingTest() {
+    String ownerId = "eb5c7783-b3e4-4466-b281-13acb9990565";
+    ItemListCache cache = new ItemListCache(new JsonObject());
+    cache.put(ownerId, Buffer.buffer("[]"), cache.readStamp());
+    itemHandler = new ItemHandler(new MongoItemRepository(mockMongoClient), new JsonObject(), cache, null, null);
+    User mockUser = mock(User.class);
+
+    when(mockUser.principal()).thenReturn(new JsonObject().put("ownerId", ownerId));
+    when(mockRoutingContext.user()).thenReturn(mockUser);
+    when(mockRoutingContext.getBodyAsJson()).thenReturn(new JsonObject().put("name", "fresh"));
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+    when(mockMongoClient.save(eq("items"), any(JsonObject.class), any())).thenAnswer(invocation -> {
+      Handler<AsyncResult<String>> handler = invocation.getArgument(2);
+      handler.handle(Future.succeededFuture("a1"));
+      return null;
+    });
+
+    itemHandler.handleAddItem(mockRoutingContext);
+
+    verify(mockResponse).setStatusCode(201);
+    assertNull(cache.get(ownerId));
+  }
+
+  @Test
+  public void handleGetItemsNotModifiedTest() {
+    String ownerId = "eb5c7783-b3e4-4466-b281-13acb9990565";
+    ItemListVersions versions = new ItemListVersions(new JsonObject());
+    itemHandler = new ItemHandler(new MongoItemRepository(mockMongoClient), new JsonObject(), null, versions, null);
+    User mockUser = mock(User.class);
+    HttpServerRequest mockRequest = mock(HttpServerRequest.class);
+    ArgumentCaptor<String> etagCaptor = ArgumentCaptor.forClass(String.class);
+
+    when(mockUser.principal()).thenReturn(new JsonObject().put("ownerId", ownerId));
+    when(mockRoutingContext.user()).thenReturn(mockUser);
+    when(mockRoutingContext.request()).thenReturn(mockRequest);
+    when(mockRoutingContext.getBodyAsJson()).thenReturn(new JsonObject().put("name", "fresh"));
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+    when(mockResponse.putHeader(eq("ETag"), etagCaptor.capture())).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+    when(mockMongoClient.findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any())).thenAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(Collections.emptyList()));
+      return null;
+    });
+    when(mockMongoClient.save(eq("items"), any(JsonObject.class), any())).thenAnswer(invocation -> {
+      Handler<AsyncResult<String>> handler = invocation.getArgument(2);
+      handler.handle(Future.succeededFuture("a1"));
+      return null;
+    });
+
+    itemHandler.handleGetItems(mockRoutingContext);
+    String etag = etagCaptor.getValue();
+    when(mockRequest.getHeader("If-None-Match")).thenReturn("\"other\", " + etag);
+    itemHandler.handleGetItems(mockRoutingContext);
+
+    verify(mockResponse).setStatusCode(304);
+    verify(mockResponse).end();
+    verify(mockMongoClient, times(1)).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+    assertEquals(1, versions.metrics().getLong("notModified"));
+
+    itemHandler.handleAddItem(mockRoutingContext);
+    itemHandler.handleGetItems(mockRoutingContext);
+
+    verify(mockMongoClient, times(2)).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+    assertNotEquals(etag, etagCaptor.getValue());
+  }
 }
@@ -1,12 +1,17 @@
 package com.vertx.vertx_server.handlers;
 
+import com.vertx.vertx_server.cache.LoginFilter;
 import com.vertx.vertx_server.handler.UserHandler;
+import com.vertx.vertx_server.security.CredentialHasher;
+import com.vertx.vertx_server.repository.MongoUserRepository;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.jwt.JWTAuth;
+import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.ext.web.RoutingContext;
 import org.junit.jupiter.api.AfterEach;
@@ -15,6 +20,8 @@ import org.junit.jupiter.api.Test;
 import org.mindrot.jbcrypt.BCrypt;
 import org.mockito.*;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,18 +47,22 @@ public class UserHandlerTest {
   @Captor
   private ArgumentCaptor<Integer> statusCodeCaptor;
 
+  private Vertx vertx;
+
   private UserHandler userHandler;
 
 
   @BeforeEach
   public void setup() {
     MockitoAnnotations.openMocks(this);
-    userHandler = new UserHandler(mockMongoClient, mockJWTAuth);
+    vertx = Vertx.vertx();
+    userHandler = new UserHandler(new MongoUserRepository(mockMongoClient), mockJWTAuth, new CredentialHasher(vertx, new JsonObject()), null);
   }
 
   @AfterEach
   public void tearDown() {
     Mockito.clearAllCaches();
+    vertx.close();
   }
 
   @Test
@@ -64,7 +75,8 @@ public class UserHandlerTest {
 
     userHandler.handleRegister(mockRoutingContext);
 
-    verify(mockMongoClient, times(1)).save(eq("users"), userCaptor.capture(), any());
+    verify(mockMongoClient, timeout(2000).times(1)).insert(eq("users"), userCaptor.capture(), any());
+    verify(mockMongoClient, never()).findOne(eq("users"), any(), any(), any());
 
     JsonObject capturedUser = userCaptor.getValue();
 
@@ -99,8 +111,8 @@ public class UserHandlerTest {
 
     userHandler.handleLogin(mockRoutingContext);
 
-    verify(mockResponse, times(1)).putHeader(eq("Content-Type"), eq("application/json"));
-    verify(mockResponse, times(1)).end((String) argThat(argument -> {
+    verify(mockResponse, timeout(2000).times(1)).putHeader(eq("Content-Type"), eq("application/json"));
+    verify(mockResponse, timeout(2000).times(1)).end((String) argThat(argument -> {
       JsonObject response = new JsonObject((String) argument);
       String token = response.getString("token");
       assertNotNull(token, "Token should not be null");
@@ -109,4 +121,53 @@ public class UserHandlerTest {
     }));
     verify(mockMongoClient, times(1)).findOne(eq("users"), eq(expectedQuery), eq(null), any());
   }
+
+  @Test
+  public void testHandleLoginOfUnknownUserSkipsLookup() {
+    LoginFilter loginFilter = new LoginFilter(vertx.eventBus(), new JsonObject().put("expected.entries", 100));
+    when(mockMongoClient.findWithOptions(eq("users"), any(JsonObject.class), any(FindOptions.class), any()))
+      .thenAnswer(invocation -> {
+        Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+        handler.handle(Future.succeededFuture(Collections.singletonList(new JsonObject().put("login", "known@sometest.com"))));
+        return null;
+      });
+    loginFilter.load(new MongoUserRepository(mockMongoClient));
+    userHandler = new UserHandler(new MongoUserRepository(mockMongoClient), mockJWTAuth, new CredentialHasher(vertx, new JsonObject()), loginFilter);
+
+    when(mockRoutingContext.getBodyAsJson()).thenReturn(new JsonObject()
+      .put("login", "unknown@sometest.com")
+      .put("password", "testpass"));
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+
+    userHandler.handleLogin(mockRoutingContext);
+
+    verify(mockResponse).setStatusCode(401);
+    verify(mockMongoClient, never()).findOne(eq("users"), any(), any(), any());
+    assertEquals(1, loginFilter.metrics().getLong("skippedLookups"));
+  }
+
+  @Test
+  public void testHandleRegisterWhenCredentialQueueIsFull() {
+    userHandler = new UserHandler(
+      new MongoUserRepository(mockMongoClient),
+      mockJWTAuth,
+      new CredentialHasher(vertx, new JsonObject().put("queue.depth", 0).put("retry.after.seconds", 3)),
+      null
+    );
+    JsonObject mockUserJson = new JsonObject()
+      .put("login", "test@sometest.com")
+      .put("password", "testpass");
+
+    when(mockRoutingContext.getBodyAsJson()).thenReturn(mockUserJson);
+    when(mockRoutingContext.response()).thenReturn(mockResponse);
+    when(mockResponse.setStatusCode(anyInt())).thenReturn(mockResponse);
+    when(mockResponse.putHeader(anyString(), anyString())).thenReturn(mockResponse);
+
+    userHandler.handleRegister(mockRoutingContext);
+
+    verify(mockResponse, timeout(2000).times(1)).setStatusCode(503);
+    verify(mockResponse, times(1)).putHeader("Retry-After", "3");
+    verify(mockMongoClient, never()).insert(eq("users"), any(), any());
+  }
 }
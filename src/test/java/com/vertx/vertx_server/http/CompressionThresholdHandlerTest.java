@@ -0,0 +1,49 @@
+package com.vertx.vertx_server.http;
+
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CompressionThresholdHandlerTest {
+
+  @Test
+  void shortResponseIsSentUncompressedTest() {
+    MultiMap headers = headersEnded("12");
+
+    assertEquals(HttpHeaders.IDENTITY.toString(), headers.get(HttpHeaders.CONTENT_ENCODING));
+  }
+
+  @Test
+  void malformedLengthIsLeftToTheServerTest() {
+    MultiMap headers = headersEnded("12 bytes");
+
+    assertNull(headers.get(HttpHeaders.CONTENT_ENCODING));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MultiMap headersEnded(String contentLength) {
+    RoutingContext context = mock(RoutingContext.class);
+    HttpServerResponse response = mock(HttpServerResponse.class);
+    MultiMap headers = MultiMap.caseInsensitiveMultiMap().set(HttpHeaders.CONTENT_LENGTH, contentLength);
+    when(context.response()).thenReturn(response);
+    when(response.headers()).thenReturn(headers);
+    ArgumentCaptor<Handler<Void>> headersEnd = ArgumentCaptor.forClass(Handler.class);
+
+    new CompressionThresholdHandler(512).handle(context);
+
+    verify(context).addHeadersEndHandler(headersEnd.capture());
+    verify(context).next();
+    headersEnd.getValue().handle(null);
+    return headers;
+  }
+}
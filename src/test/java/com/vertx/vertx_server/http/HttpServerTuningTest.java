@@ -0,0 +1,50 @@
+package com.vertx.vertx_server.http;
+
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpServerTuningTest {
+
+  @Test
+  void optionsFollowConfigTest() {
+    JsonObject config = new JsonObject()
+      .put("idle.timeout.seconds", 30)
+      .put("compression", new JsonObject().put("enabled", true).put("level", 1).put("min.bytes", 512))
+      .put("http2", new JsonObject()
+        .put("initial.window.bytes", 262144)
+        .put("connection.window.bytes", 1048576)
+        .put("max.concurrent.streams", 50))
+      .put("tcp", new JsonObject().put("fast.open", true).put("quick.ack", true).put("reuse.port", true));
+
+    HttpServerOptions options = HttpServerTuning.options(config);
+
+    assertTrue(options.isCompressionSupported());
+    assertEquals(1, options.getCompressionLevel());
+    assertEquals(512, HttpServerTuning.compressionMinBytes(config));
+    assertEquals(262144, options.getInitialSettings().getInitialWindowSize());
+    assertEquals(50, options.getInitialSettings().getMaxConcurrentStreams());
+    assertEquals(1048576, options.getHttp2ConnectionWindowSize());
+    assertEquals(30, options.getIdleTimeout());
+    assertEquals(TimeUnit.SECONDS, options.getIdleTimeoutUnit());
+    assertTrue(options.isTcpNoDelay());
+    assertTrue(options.isTcpFastOpen());
+    assertTrue(options.isTcpQuickAck());
+    assertTrue(options.isReusePort());
+  }
+
+  @Test
+  void compressionThresholdIgnoredWhenDisabledTest() {
+    JsonObject config = new JsonObject()
+      .put("compression", new JsonObject().put("enabled", false).put("min.bytes", 512));
+
+    assertFalse(HttpServerTuning.options(config).isCompressionSupported());
+    assertEquals(0, HttpServerTuning.compressionMinBytes(config));
+  }
+}
@@ -0,0 +1,182 @@
+package com.vertx.vertx_server.load;
+
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A {@link MongoClient} stand-in that keeps documents in memory and completes
+ * every call after a fixed artificial latency, so the HTTP stack can be load
+ * tested without a database.
+ * <p>
+ * Only the calls the handlers make are implemented. Queries support equality
+ * on top level fields and {@code $gt} on {@code _id}, the unique index on
+ * {@code users.login} is enforced like the real one.
+ */
+public class InMemoryMongo {
+
+  private static final String ID = "_id";
+
+  private final Vertx vertx;
+  private final long latencyMs;
+  private final Map<String, ConcurrentSkipListMap<String, JsonObject>> collections = new ConcurrentHashMap<>();
+  private final Map<String, String> loginIndex = new ConcurrentHashMap<>();
+
+  private InMemoryMongo(Vertx vertx, long latencyMs) {
+    this.vertx = vertx;
+    this.latencyMs = latencyMs;
+  }
+
+  public static MongoClient create(Vertx vertx, long latencyMs) {
+    return new InMemoryMongo(vertx, latencyMs).client();
+  }
+
+  @SuppressWarnings("unchecked")
+  private MongoClient client() {
+    MongoClient client = mock(MongoClient.class, withSettings().stubOnly());
+
+    doAnswer(invocation -> {
+      String id = insert(invocation.getArgument(0), invocation.getArgument(1));
+      complete(invocation.<Handler<AsyncResult<String>>>getArgument(2), id);
+      return client;
+    }).when(client).save(anyString(), any(JsonObject.class), any());
+
+    doAnswer(invocation -> {
+      Handler<AsyncResult<String>> handler = invocation.getArgument(2);
+      try {
+        complete(handler, insert(invocation.getArgument(0), invocation.getArgument(1)));
+      } catch (MongoWriteException e) {
+        fail(handler, e);
+      }
+      return client;
+    }).when(client).insert(anyString(), any(JsonObject.class), any());
+
+    doAnswer(invocation -> {
+      List<JsonObject> found = find(invocation.getArgument(0), invocation.getArgument(1), Integer.MAX_VALUE);
+      complete(invocation.<Handler<AsyncResult<JsonObject>>>getArgument(3), found.isEmpty() ? null : found.get(0));
+      return client;
+    }).when(client).findOne(anyString(), any(JsonObject.class), isNull(), any());
+
+    doAnswer(invocation -> {
+      complete(invocation.<Handler<AsyncResult<List<JsonObject>>>>getArgument(2),
+        find(invocation.getArgument(0), invocation.getArgument(1), Integer.MAX_VALUE));
+      return client;
+    }).when(client).find(anyString(), any(JsonObject.class), any());
+
+    doAnswer(invocation -> {
+      FindOptions options = invocation.getArgument(2);
+      int limit = options.getLimit() < 0 ? Integer.MAX_VALUE : options.getLimit();
+      complete(invocation.<Handler<AsyncResult<List<JsonObject>>>>getArgument(3),
+        find(invocation.getArgument(0), invocation.getArgument(1), limit));
+      return client;
+    }).when(client).findWithOptions(anyString(), any(JsonObject.class), any(FindOptions.class), any());
+
+    doAnswer(invocation -> {
+      String collection = invocation.getArgument(0);
+      List<BulkOperation> operations = invocation.getArgument(1);
+      for (BulkOperation operation : operations) {
+        insert(collection, operation.getDocument());
+      }
+      Promise<MongoClientBulkWriteResult> promise = Promise.promise();
+      complete(promise, new MongoClientBulkWriteResult(operations.size(), 0, 0, 0, new ArrayList<>(), new ArrayList<>()));
+      return promise.future();
+    }).when(client).bulkWriteWithOptions(anyString(), anyList(), any());
+
+    return client;
+  }
+
+  private String insert(String collection, JsonObject document) {
+    JsonObject stored = document.copy();
+    String id = stored.getString(ID);
+    if (id == null) {
+      id = new ObjectId().toHexString();
+      stored.put(ID, id);
+    }
+    if ("users".equals(collection) && loginIndex.putIfAbsent(stored.getString("login"), id) != null) {
+      throw new MongoWriteException(
+        new WriteError(11000, "E11000 duplicate key error collection: users index: login_unique", new BsonDocument()),
+        new ServerAddress());
+    }
+    collections.computeIfAbsent(collection, name -> new ConcurrentSkipListMap<>()).put(id, stored);
+    return id;
+  }
+
+  private List<JsonObject> find(String collection, JsonObject query, int limit) {
+    List<JsonObject> found = new ArrayList<>();
+    Map<String, JsonObject> documents = collections.get(collection);
+    if (documents == null) {
+      return found;
+    }
+    if ("users".equals(collection) && query.getValue("login") instanceof String) {
+      String id = loginIndex.get(query.getString("login"));
+      JsonObject user = id == null ? null : documents.get(id);
+      if (user != null) {
+        found.add(user.copy());
+      }
+      return found;
+    }
+    documents.values().stream()
+      .filter(document -> matches(document, query))
+      .limit(limit)
+      .forEach(document -> found.add(document.copy()));
+    return found;
+  }
+
+  private static boolean matches(JsonObject document, JsonObject query) {
+    for (String field : query.fieldNames()) {
+      Object expected = query.getValue(field);
+      Object actual = document.getValue(field);
+      if (expected instanceof JsonObject && ((JsonObject) expected).containsKey("$gt")) {
+        Object bound = ((JsonObject) expected).getValue("$gt");
+        if (actual == null || actual.toString().compareTo(bound.toString()) <= 0) {
+          return false;
+        }
+      } else if (expected == null ? actual != null : !expected.equals(actual)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private <T> void complete(Handler<AsyncResult<T>> handler, T result) {
+    delay(() -> handler.handle(Future.succeededFuture(result)));
+  }
+
+  private <T> void fail(Handler<AsyncResult<T>> handler, Throwable cause) {
+    delay(() -> handler.handle(Future.failedFuture(cause)));
+  }
+
+  private void delay(Runnable action) {
+    if (latencyMs <= 0) {
+      vertx.runOnContext(v -> action.run());
+    } else {
+      vertx.setTimer(latencyMs, timer -> action.run());
+    }
+  }
+}
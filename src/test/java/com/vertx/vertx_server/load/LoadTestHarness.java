@@ -0,0 +1,401 @@
+package com.vertx.vertx_server.load;
+
+import com.vertx.vertx_server.MainVerticle;
+import io.vertx.config.ConfigRetriever;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.vertx.vertx_server.MainVerticle.getConfigRetrieverOptions;
+import static com.vertx.vertx_server.MainVerticle.getDeploymentOptions;
+
+/**
+ * Drives mixed register, login, add item and list items traffic against a
+ * {@link MainVerticle} backed by {@link InMemoryMongo}, and reports throughput
+ * and latency percentiles per route.
+ * <p>
+ * Requests are sent at a fixed arrival rate and latency is measured from the
+ * time a request was due, not from the time it was sent, so a stalled server
+ * shows up in the percentiles instead of silently lowering the request rate.
+ * Options are {@code key=value} pairs, see {@link #DEFAULTS}. With
+ * {@code compare.instances=true} the traffic is sent to a single instance and
+ * to {@code http.instances}, and the report gives the speedup between both.
+ */
+public class LoadTestHarness {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoadTestHarness.class);
+  private static final String LOCALHOST = "localhost";
+  private static final String PASSWORD = "load-test-password";
+  private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+  private static final int ITEMS_PER_BATCH = 5_000;
+
+  static final JsonObject DEFAULTS = new JsonObject()
+    .put("rate", 500)
+    .put("duration.seconds", 10)
+    .put("connections", 64)
+    .put("users", 20)
+    .put("mongo.latency.ms", 1)
+    .put("mix.register", 5)
+    .put("mix.login", 5)
+    .put("mix.add", 40)
+    .put("mix.list", 50)
+    .put("http.instances", Runtime.getRuntime().availableProcessors())
+    .put("credentials.pool.size", 4)
+    .put("bcrypt.log.rounds", 10)
+    .put("items.cache.enabled", true)
+    .put("items.coalesce.enabled", false)
+    .put("rate.limit.enabled", false)
+    .put("items.per.user", 0)
+    .put("compression", false)
+    .put("compression.level", 1)
+    .put("http2", false)
+    .put("native.transport", false)
+    .put("conditional", false)
+    .put("compare.instances", false);
+
+  private final Vertx vertx;
+  private final JsonObject options;
+  private final Random random = new Random(42);
+  private final Map<String, RouteStats> routes = new LinkedHashMap<>();
+  private final AtomicInteger registrations = new AtomicInteger();
+  private final List<String> logins = new ArrayList<>();
+  private final List<String> tokens = new ArrayList<>();
+  private final Map<Integer, String> etags = new ConcurrentHashMap<>();
+
+  private HttpClient client;
+  private int port;
+
+  public LoadTestHarness(Vertx vertx, JsonObject options) {
+    this.vertx = vertx;
+    this.options = DEFAULTS.copy().mergeIn(options);
+    for (String route : List.of("register", "login", "add", "list")) {
+      routes.put(route, new RouteStats(this.options.getInteger("mix." + route)));
+    }
+  }
+
+  public static void main(String[] args) {
+    JsonObject options = new JsonObject();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected key=value but got " + arg);
+      }
+      String key = arg.substring(0, separator);
+      Object defaultValue = DEFAULTS.getValue(key);
+      if (defaultValue == null) {
+        throw new IllegalArgumentException("Unknown option " + key + ", expected one of " + DEFAULTS.fieldNames());
+      }
+      String value = arg.substring(separator + 1);
+      options.put(key, defaultValue instanceof Boolean ? (Object) Boolean.valueOf(value) : (Object) Integer.valueOf(value));
+    }
+
+    Vertx vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(options.getBoolean("native.transport", false)));
+    LOG.info("Native transport " + (vertx.isNativeTransportEnabled() ? "enabled." : "disabled."));
+    Future<JsonObject> run = options.getBoolean("compare.instances", false)
+      ? compareInstances(vertx, options)
+      : new LoadTestHarness(vertx, options).run();
+    run
+      .onSuccess(report -> System.out.println(report.encodePrettily()))
+      .onFailure(cause -> LOG.error("Load test failed", cause))
+      .eventually(() -> vertx.close())
+      .onComplete(done -> System.exit(done.succeeded() ? 0 : 1));
+  }
+
+  /**
+   * Runs the traffic against a single instance and against
+   * {@code http.instances}. The rate has to exceed what a single instance
+   * serves for the throughputs to differ.
+   */
+  static Future<JsonObject> compareInstances(Vertx vertx, JsonObject options) {
+    JsonObject single = options.copy().put("http.instances", 1);
+    // the first run only warms up the JIT so that both measured runs start equal
+    return new LoadTestHarness(vertx, options).run()
+      .compose(warmup -> new LoadTestHarness(vertx, single).run())
+      .compose(singleReport -> new LoadTestHarness(vertx, options).run()
+        .map(multiReport -> new JsonObject()
+          .put("single", singleReport)
+          .put("multi", multiReport)
+          .put("speedup", multiReport.getDouble("throughput") / singleReport.getDouble("throughput"))));
+  }
+
+  /**
+   * Deploys the application, registers the test users, sends the configured
+   * traffic and completes with the report once every response arrived.
+   */
+  public Future<JsonObject> run() {
+    MongoClient mongoClient = InMemoryMongo.create(vertx, options.getLong("mongo.latency.ms"));
+    return ConfigRetriever.create(vertx, getConfigRetrieverOptions()).getConfig()
+      .map(this::applyOptions)
+      .compose(config -> {
+        port = config.getInteger("http.port");
+        // with prior knowledge HTTP/2 the connections are multiplexed instead of pooled per request
+        HttpClientOptions clientOptions = options.getBoolean("http2")
+          ? new HttpClientOptions().setProtocolVersion(HttpVersion.HTTP_2).setHttp2ClearTextUpgrade(false)
+          : new HttpClientOptions();
+        client = vertx.createHttpClient(clientOptions, new PoolOptions()
+          .setHttp1MaxSize(options.getInteger("connections"))
+          .setHttp2MaxSize(Math.max(1, options.getInteger("connections") / 16)));
+        return vertx.deployVerticle(() -> new MainVerticle(vertx, mongoClient, config), getDeploymentOptions(config));
+      })
+      .compose(deploymentId -> createUsers()
+        .compose(v -> sendTraffic())
+        .eventually(() -> vertx.undeploy(deploymentId)))
+      .eventually(() -> client == null ? Future.succeededFuture() : client.close());
+  }
+
+  private JsonObject applyOptions(JsonObject config) {
+    JsonObject credentials = config.getJsonObject("credentials");
+    JsonObject items = config.getJsonObject("items");
+    config.put("http.instances", options.getInteger("http.instances"));
+    credentials.put("pool.size", options.getInteger("credentials.pool.size"));
+    credentials.put("bcrypt.log.rounds", options.getInteger("bcrypt.log.rounds"));
+    // a login test must not be throttled by the credential queue of a single instance
+    credentials.put("queue.depth", Math.max(credentials.getInteger("queue.depth"), options.getInteger("connections")));
+    items.getJsonObject("cache").put("enabled", options.getBoolean("items.cache.enabled"));
+    items.getJsonObject("coalesce").put("enabled", options.getBoolean("items.coalesce.enabled"));
+    // every simulated user shares the address of the harness
+    config.getJsonObject("rate.limit")
+      .put("enabled", options.getBoolean("rate.limit.enabled"))
+      .put("key.by.peer", true);
+    items.getJsonObject("etag").put("enabled", options.getBoolean("conditional"));
+    config.getJsonObject("http.server").getJsonObject("compression")
+      .put("enabled", options.getBoolean("compression"))
+      .put("level", options.getInteger("compression.level"));
+    return config;
+  }
+
+  private Future<Void> createUsers() {
+    Future<Void> created = Future.succeededFuture();
+    for (int i = 0; i < options.getInteger("users"); i++) {
+      String login = nextLogin();
+      created = created
+        .compose(v -> send(HttpMethod.POST, "/register", null, credentials(login)))
+        .compose(registered -> send(HttpMethod.POST, "/login", null, credentials(login)))
+        .compose(loggedIn -> {
+          if (loggedIn.statusCode != 200) {
+            return Future.failedFuture("Could not log in " + login + ": " + loggedIn.statusCode);
+          }
+          logins.add(login);
+          tokens.add(new JsonObject(loggedIn.body).getString("token"));
+          return addItems(tokens.get(tokens.size() - 1), options.getInteger("items.per.user"));
+        });
+    }
+    return created;
+  }
+
+  // fills the listings up front so that list requests return large bodies from the start
+  private Future<Void> addItems(String token, int count) {
+    Future<Void> added = Future.succeededFuture();
+    for (int offset = 0; offset < count; offset += ITEMS_PER_BATCH) {
+      Buffer batch = Buffer.buffer();
+      for (int i = offset; i < Math.min(count, offset + ITEMS_PER_BATCH); i++) {
+        batch.appendString(new JsonObject().put("name", "load-item-" + i).encode()).appendByte((byte) '\n');
+      }
+      added = added.compose(v -> client.request(HttpMethod.POST, port, LOCALHOST, "/items/batch")
+        .compose(request -> request
+          .putHeader("Authorization", "Bearer " + token)
+          .putHeader("Content-Type", "application/x-ndjson")
+          .send(batch))
+        .compose(response -> response.statusCode() == 200
+          ? Future.<Void>succeededFuture()
+          : Future.failedFuture("Could not add items: " + response.statusCode())));
+    }
+    return added;
+  }
+
+  private Future<JsonObject> sendTraffic() {
+    int rate = options.getInteger("rate");
+    long total = (long) rate * options.getInteger("duration.seconds");
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    Promise<JsonObject> finished = Promise.promise();
+    LongAdder completed = new LongAdder();
+    long[] sent = {0};
+    long startedAt = System.nanoTime();
+
+    vertx.setPeriodic(1, timer -> {
+      long due = Math.min(total, (System.nanoTime() - startedAt) / intervalNanos + 1);
+      for (; sent[0] < due; sent[0]++) {
+        long intendedAt = startedAt + sent[0] * intervalNanos;
+        sendRandomRequest(intendedAt).onComplete(done -> {
+          completed.increment();
+          if (completed.sum() == total) {
+            finished.complete(report(System.nanoTime() - startedAt));
+          }
+        });
+      }
+      if (sent[0] == total) {
+        vertx.cancelTimer(timer);
+      }
+    });
+    return finished.future();
+  }
+
+  private Future<Void> sendRandomRequest(long intendedAt) {
+    String route = pickRoute();
+    int user = random.nextInt(tokens.size());
+    Future<Response> response;
+    switch (route) {
+      case "register":
+        response = send(HttpMethod.POST, "/register", null, credentials(nextLogin()));
+        break;
+      case "login":
+        response = send(HttpMethod.POST, "/login", null, credentials(logins.get(user)));
+        break;
+      case "add":
+        response = send(HttpMethod.POST, "/items", tokens.get(user),
+          new JsonObject().put("name", "load-item-" + intendedAt));
+        break;
+      default:
+        // a polling client sends back the tag of the listing it already has
+        response = send(HttpMethod.GET, "/items", tokens.get(user), null,
+          options.getBoolean("conditional") ? etags.get(user) : null)
+          .andThen(res -> {
+            if (res.succeeded() && res.result().etag != null) {
+              etags.put(user, res.result().etag);
+            }
+          });
+    }
+    RouteStats stats = routes.get(route);
+    return response
+      .andThen(res -> stats.record(intendedAt, res.succeeded() && res.result().statusCode < 400,
+        res.succeeded() ? res.result().body.length() : 0))
+      .mapEmpty();
+  }
+
+  private String pickRoute() {
+    int total = 0;
+    for (RouteStats stats : routes.values()) {
+      total += stats.weight;
+    }
+    int pick = random.nextInt(total);
+    for (Map.Entry<String, RouteStats> route : routes.entrySet()) {
+      pick -= route.getValue().weight;
+      if (pick < 0) {
+        return route.getKey();
+      }
+    }
+    throw new IllegalStateException("Empty traffic mix");
+  }
+
+  private JsonObject report(long elapsedNanos) {
+    double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+    JsonObject report = new JsonObject()
+      .put("options", options)
+      .put("elapsedSeconds", seconds);
+    JsonObject perRoute = new JsonObject();
+    long requests = 0;
+    for (Map.Entry<String, RouteStats> route : routes.entrySet()) {
+      RouteStats stats = route.getValue();
+      requests += stats.latencies.getTotalCount();
+      perRoute.put(route.getKey(), stats.toJson(seconds));
+    }
+    report.put("throughput", requests / seconds).put("routes", perRoute);
+    LOG.info("Load test finished: " + perRoute.encode());
+    return report;
+  }
+
+  private String nextLogin() {
+    return "load-" + registrations.incrementAndGet() + "@example.com";
+  }
+
+  private static JsonObject credentials(String login) {
+    return new JsonObject().put("login", login).put("password", PASSWORD);
+  }
+
+  private Future<Response> send(HttpMethod method, String uri, String token, JsonObject body) {
+    return send(method, uri, token, body, null);
+  }
+
+  private Future<Response> send(HttpMethod method, String uri, String token, JsonObject body, String ifNoneMatch) {
+    return client.request(method, port, LOCALHOST, uri)
+      .compose(request -> {
+        if (token != null) {
+          request.putHeader("Authorization", "Bearer " + token);
+        }
+        if (ifNoneMatch != null) {
+          request.putHeader("If-None-Match", ifNoneMatch);
+        }
+        if (options.getBoolean("compression")) {
+          request.putHeader("Accept-Encoding", "gzip, deflate");
+        }
+        if (body == null) {
+          return request.send();
+        }
+        return request.putHeader("Content-Type", "application/json").send(body.toBuffer());
+      })
+      .compose(response -> response.body()
+        .map(payload -> new Response(response.statusCode(), payload, response.getHeader("ETag"))));
+  }
+
+  private static class Response {
+    final int statusCode;
+    final Buffer body;
+    final String etag;
+
+    Response(int statusCode, Buffer body, String etag) {
+      this.statusCode = statusCode;
+      this.body = body;
+      this.etag = etag;
+    }
+  }
+
+  private static class RouteStats {
+    final int weight;
+    final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    final LongAdder errors = new LongAdder();
+    final LongAdder bodyBytes = new LongAdder();
+
+    RouteStats(int weight) {
+      this.weight = weight;
+    }
+
+    void record(long intendedAt, boolean succeeded, int bytes) {
+      bodyBytes.add(bytes);
+      long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedAt);
+      latencies.recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+      if (!succeeded) {
+        errors.increment();
+      }
+    }
+
+    JsonObject toJson(double seconds) {
+      return new JsonObject()
+        .put("count", latencies.getTotalCount())
+        .put("errors", errors.sum())
+        .put("throughput", latencies.getTotalCount() / seconds)
+        .put("p50Ms", percentileMillis(50))
+        .put("p90Ms", percentileMillis(90))
+        .put("p99Ms", percentileMillis(99))
+        .put("p999Ms", percentileMillis(99.9))
+        .put("maxMs", latencies.getMaxValue() / 1000.0)
+        .put("meanBodyBytes", latencies.getTotalCount() == 0 ? 0 : bodyBytes.sum() / latencies.getTotalCount());
+    }
+
+    private double percentileMillis(double percentile) {
+      return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+  }
+}
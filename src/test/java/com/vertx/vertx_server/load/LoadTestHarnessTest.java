@@ -0,0 +1,63 @@
+package com.vertx.vertx_server.load;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+public class LoadTestHarnessTest {
+
+  @Test
+  @Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+  void shortRunServesEveryRouteWithoutErrors(Vertx vertx, VertxTestContext testContext) {
+    JsonObject options = new JsonObject()
+      .put("rate", 200)
+      .put("duration.seconds", 2)
+      .put("users", 5)
+      .put("http.instances", 2)
+      .put("bcrypt.log.rounds", 4);
+
+    new LoadTestHarness(vertx, options).run()
+      .onComplete(testContext.succeeding(report -> testContext.verify(() -> {
+        JsonObject routes = report.getJsonObject("routes");
+        long requests = 0;
+        for (String route : routes.fieldNames()) {
+          JsonObject stats = routes.getJsonObject(route);
+          assertTrue(stats.getLong("count") > 0, route + " should have been exercised");
+          assertEquals(0L, stats.getLong("errors"), route + " should not fail");
+          assertTrue(stats.getDouble("p99Ms") >= stats.getDouble("p50Ms"));
+          requests += stats.getLong("count");
+        }
+        assertEquals(400, requests);
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  @Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+  void comparisonReportsBothRuns(Vertx vertx, VertxTestContext testContext) {
+    JsonObject options = new JsonObject()
+      .put("rate", 100)
+      .put("duration.seconds", 1)
+      .put("users", 2)
+      .put("http.instances", 2)
+      .put("bcrypt.log.rounds", 4);
+
+    LoadTestHarness.compareInstances(vertx, options)
+      .onComplete(testContext.succeeding(report -> testContext.verify(() -> {
+        assertEquals(1, report.getJsonObject("single").getJsonObject("options").getInteger("http.instances"));
+        assertEquals(2, report.getJsonObject("multi").getJsonObject("options").getInteger("http.instances"));
+        assertTrue(report.getDouble("speedup") > 0);
+        testContext.completeNow();
+      })));
+  }
+}
@@ -0,0 +1,69 @@
+package com.vertx.vertx_server.logging;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+public class AccessLogHandlerTest {
+
+  @Test
+  void unsampledRequestsAreOnlyLoggedWhenFailedOrSlow() {
+    AccessLogHandler handler = new AccessLogHandler(new JsonObject()
+      .put("sample.rate", 0.0)
+      .put("slow.request.ms", 500));
+
+    assertFalse(handler.shouldLog(200, 10, 1_000));
+    assertFalse(handler.shouldLog(404, 10, 1_000));
+    assertTrue(handler.shouldLog(500, 10, 1_000));
+    assertTrue(handler.shouldLog(200, 750, 1_000));
+  }
+
+  @Test
+  void linesAreRateLimitedPerSecond() {
+    AccessLogHandler handler = new AccessLogHandler(new JsonObject()
+      .put("sample.rate", 1.0)
+      .put("max.per.second", 2));
+
+    assertTrue(handler.shouldLog(200, 1, 1_000));
+    assertTrue(handler.shouldLog(200, 1, 1_100));
+    assertFalse(handler.shouldLog(500, 1, 1_200));
+    assertTrue(handler.shouldLog(200, 1, 2_000));
+  }
+
+  @Test
+  @Timeout(value = 2, timeUnit = TimeUnit.SECONDS)
+  void requestIdIsEchoedOrGenerated(Vertx vertx, VertxTestContext testContext) {
+    Router router = Router.router(vertx);
+    router.route().handler(new AccessLogHandler(new JsonObject()));
+    router.get("/ping").handler(context -> context.response().end(context.<String>get(AccessLogHandler.REQUEST_ID)));
+
+    vertx.createHttpServer().requestHandler(router).listen(0)
+      .compose(server -> vertx.createHttpClient().request(HttpMethod.GET, server.actualPort(), "localhost", "/ping")
+        .compose(req -> req.putHeader(AccessLogHandler.REQUEST_ID_HEADER, "abc123").send())
+        .compose(echoed -> echoed.body().map(body -> {
+          assertEquals("abc123", echoed.getHeader(AccessLogHandler.REQUEST_ID_HEADER));
+          assertEquals("abc123", body.toString());
+          return server;
+        })))
+      .compose(server -> vertx.createHttpClient().request(HttpMethod.GET, server.actualPort(), "localhost", "/ping"))
+      .compose(req -> req.send())
+      .onComplete(testContext.succeeding(generated -> testContext.verify(() -> {
+        assertNotNull(generated.getHeader(AccessLogHandler.REQUEST_ID_HEADER));
+        testContext.completeNow();
+      })));
+  }
+}
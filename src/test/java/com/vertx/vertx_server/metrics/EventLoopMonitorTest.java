@@ -0,0 +1,102 @@
+package com.vertx.vertx_server.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EventLoopMonitorTest {
+
+  private static final JsonObject CONFIG = new JsonObject()
+    .put("eventloop.check.interval.ms", 20)
+    .put("eventloop.blocked.threshold.ms", 100);
+
+  private Vertx vertx;
+
+  @BeforeEach
+  void setup() {
+    vertx = Vertx.vertx(new VertxOptions()
+      .setEventLoopPoolSize(1)
+      .setMetricsOptions(AppMetrics.options(new JsonObject().put("enabled", true))));
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void eventLoopSharedByInstancesIsCountedOnceTest() throws Exception {
+    CompletableFuture<Context> started = new CompletableFuture<>();
+    vertx.deployVerticle(() -> new AbstractVerticle() {
+      @Override
+      public void start() {
+        EventLoopMonitor.start(vertx, CONFIG);
+        started.complete(context);
+      }
+    }, new DeploymentOptions().setInstances(3)).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+    CompletableFuture<String> thread = new CompletableFuture<>();
+    started.get().runOnContext(v -> {
+      thread.complete(Thread.currentThread().getName());
+      sleep(300);
+    });
+    // lets the timers fire once the event loop is free again
+    Thread.sleep(600);
+
+    Counter blocked = AppMetrics.registry().get("eventloop.blocked").tag("thread", thread.get()).counter();
+    assertEquals(1, blocked.count());
+  }
+
+  @Test
+  void nextVerticleWatchesOnceTheFirstStopsTest() throws Exception {
+    List<Boolean> started = new CopyOnWriteArrayList<>();
+    Supplier<Verticle> verticle = () -> new AbstractVerticle() {
+      private EventLoopMonitor monitor;
+
+      @Override
+      public void start() {
+        monitor = EventLoopMonitor.start(vertx, CONFIG);
+        started.add(monitor != null);
+      }
+
+      @Override
+      public void stop() {
+        if (monitor != null) {
+          monitor.stop(vertx);
+        }
+      }
+    };
+
+    vertx.deployVerticle(verticle, new DeploymentOptions().setInstances(2))
+      .compose(vertx::undeploy)
+      .compose(v -> vertx.deployVerticle(verticle, new DeploymentOptions()))
+      .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+    assertEquals(Arrays.asList(true, false, true), started);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.vertx.vertx_server.metrics;
+
+import com.vertx.vertx_server.MainVerticle;
+import io.vertx.config.ConfigRetriever;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.PubSecKeyOptions;
+import io.vertx.ext.auth.jwt.JWTAuth;
+import io.vertx.ext.auth.jwt.JWTAuthOptions;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.vertx.vertx_server.MainVerticle.getConfigRetrieverOptions;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class MetricsEndpointTest {
+
+  private Vertx vertx;
+  private MongoClient mockMongoClient;
+
+  @BeforeEach
+  void setup() {
+    vertx = Vertx.vertx(new VertxOptions().setMetricsOptions(AppMetrics.options(new JsonObject().put("enabled", true))));
+    mockMongoClient = mock(MongoClient.class);
+    doAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(new ArrayList<>()));
+      return null;
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  @Timeout(value = 10, timeUnit = TimeUnit.SECONDS)
+  void metricsEndpointExposesRouteMongoAndEventLoopMetrics() throws Throwable {
+    VertxTestContext testContext = new VertxTestContext();
+    HttpClient client = vertx.createHttpClient();
+
+    ConfigRetriever.create(vertx, getConfigRetrieverOptions()).getConfig()
+      .compose(config -> {
+        String token = JWTAuth.create(vertx, new JWTAuthOptions()
+            .addPubSecKey(new PubSecKeyOptions()
+              .setAlgorithm("HS256")
+              .setBuffer(config.getJsonObject("jwt").getString("secret"))))
+          .generateToken(new JsonObject().put("ownerId", "eb5c7783-b3e4-4466-b281-13acb9990565"),
+            new JWTOptions().setExpiresInSeconds(5));
+        return vertx.deployVerticle(new MainVerticle(vertx, mockMongoClient, config))
+          .compose(id -> client.request(HttpMethod.GET, 3000, "localhost", "/items"))
+          .compose(req -> req.putHeader("Authorization", "Bearer " + token).send())
+          .compose(response -> response.body());
+      })
+      // gives the event loop monitor time to take a sample
+      .compose(items -> Future.<Void>future(promise -> vertx.setTimer(250, timer -> promise.complete())))
+      .compose(v -> client.request(HttpMethod.GET, 3000, "localhost", "/metrics"))
+      .compose(req -> req.send())
+      .compose(response -> {
+        // the public port does not expose the metrics
+        assertEquals(404, response.statusCode());
+        return client.request(HttpMethod.GET, 3001, "localhost", "/metrics");
+      })
+      .compose(req -> req.send())
+      .compose(response -> {
+        assertEquals(200, response.statusCode());
+        return response.body();
+      })
+      .onComplete(testContext.succeeding(body -> testContext.verify(() -> {
+        String metrics = body.toString();
+        assertTrue(metrics.contains("vertx_http_server_response_time_seconds_bucket{code=\"200\",method=\"GET\",route=\"/items>/items/>/items\""), metrics);
+        assertTrue(metrics.contains("vertx_http_server_active_connections"), metrics);
+        assertTrue(metrics.contains("mongo_operations_seconds_count{collection=\"items\",operation=\"find\",outcome=\"success\",}"), metrics);
+        assertTrue(metrics.contains("eventloop_lag_milliseconds{thread=\"vert.x-eventloop-thread-"), metrics);
+        assertTrue(metrics.contains("eventloop_blocked_total"), metrics);
+        assertTrue(metrics.contains("cache_gets_total{cache=\"items.listing\",result=\"miss\",}"), metrics);
+        testContext.completeNow();
+      })));
+
+    assertTrue(testContext.awaitCompletion(10, TimeUnit.SECONDS));
+    if (testContext.failed()) {
+      throw testContext.causeOfFailure();
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.vertx.vertx_server.model;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ItemTest {
+
+  @Test
+  public void toJsonMatchesReflectiveMappingTest() {
+    Item item = new Item(UUID.randomUUID(), UUID.randomUUID(), "NewItem");
+    assertEquals(JsonObject.mapFrom(item), item.toJson());
+
+    Item read = Item.fromJson(item.toJson());
+    assertEquals(item.getId(), read.getId());
+    assertEquals(item.getOwner(), read.getOwner());
+    assertEquals("NewItem", read.getName());
+  }
+
+  @Test
+  public void uuidsConvertLikeTheJdkTest() {
+    Random random = new Random(42);
+    for (int i = 0; i < 1000; i++) {
+      UUID uuid = new UUID(random.nextLong(), random.nextLong());
+      assertEquals(uuid.toString(), Uuids.toString(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+      JsonObject binary = Uuids.toBinary(uuid);
+      assertEquals(16, binary.getBinary(Uuids.BINARY).length);
+      assertEquals(uuid, Uuids.fromJson(binary));
+      assertEquals(uuid.toString(), Uuids.toString((Object) binary));
+    }
+  }
+
+  @Test
+  public void userRoundTripsTest() {
+    User user = new User(UUID.randomUUID(), "a@mail.com", "hash");
+    JsonObject json = user.toJson();
+    assertEquals(user.getId().toString(), json.getString("id"));
+    assertEquals(user.getId(), User.fromJson(json).getId());
+    assertEquals("hash", User.fromJson(json).getPassword());
+  }
+}
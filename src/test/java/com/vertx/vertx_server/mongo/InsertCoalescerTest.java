@@ -0,0 +1,95 @@
+package com.vertx.vertx_server.mongo;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcernResult;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.MongoClientBulkWriteResult;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(VertxExtension.class)
+public class InsertCoalescerTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void coalescesInsertsIntoBatches(Vertx vertx, VertxTestContext testContext) {
+    MongoClient mockMongoClient = mock(MongoClient.class);
+    when(mockMongoClient.bulkWriteWithOptions(eq("items"), anyList(), any(BulkWriteOptions.class)))
+      .thenReturn(Future.succeededFuture(new MongoClientBulkWriteResult()));
+
+    vertx.runOnContext(v -> {
+      InsertCoalescer coalescer = new InsertCoalescer(vertx, mockMongoClient, "items",
+        new JsonObject().put("max.latency.ms", 5).put("max.batch.size", 3));
+      List<Future<String>> inserts = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        inserts.add(coalescer.insert(new JsonObject().put("name", "item" + i)));
+      }
+
+      Future.all(inserts).onComplete(testContext.succeeding(all -> testContext.verify(() -> {
+        ArgumentCaptor<List<BulkOperation>> operations = ArgumentCaptor.forClass(List.class);
+        verify(mockMongoClient, times(2)).bulkWriteWithOptions(eq("items"), operations.capture(), any(BulkWriteOptions.class));
+        assertEquals(3, operations.getAllValues().get(0).size());
+        assertEquals(2, operations.getAllValues().get(1).size());
+        for (int i = 0; i < 5; i++) {
+          assertNotNull(all.resultAt(i));
+        }
+        JsonObject metrics = coalescer.metrics();
+        assertEquals(2, metrics.getLong("batches"));
+        assertEquals(5.0 / 6, metrics.getDouble("fillRatio"), 0.001);
+        testContext.completeNow();
+      })));
+    });
+  }
+
+  @Test
+  void failsOnlyTheRejectedInserts(Vertx vertx, VertxTestContext testContext) {
+    MongoClient mockMongoClient = mock(MongoClient.class);
+    MongoBulkWriteException failure = new MongoBulkWriteException(
+      BulkWriteResult.unacknowledged(),
+      Collections.singletonList(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)),
+      null,
+      new ServerAddress(),
+      Collections.emptySet());
+    when(mockMongoClient.bulkWriteWithOptions(eq("items"), anyList(), any(BulkWriteOptions.class)))
+      .thenReturn(Future.failedFuture(failure));
+
+    vertx.runOnContext(v -> {
+      InsertCoalescer coalescer = new InsertCoalescer(vertx, mockMongoClient, "items", new JsonObject());
+      Future<String> first = coalescer.insert(new JsonObject().put("name", "first"));
+      Future<String> second = coalescer.insert(new JsonObject().put("name", "second"));
+
+      Future.join(first, second).onComplete(done -> testContext.verify(() -> {
+        assertTrue(first.succeeded());
+        assertTrue(second.failed());
+        testContext.completeNow();
+      }));
+    });
+  }
+}
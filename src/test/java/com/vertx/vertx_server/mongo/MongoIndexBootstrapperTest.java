@@ -0,0 +1,108 @@
+package com.vertx.vertx_server.mongo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.IndexOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(VertxExtension.class)
+public class MongoIndexBootstrapperTest {
+
+  private MongoClient mockMongoClient;
+
+  @BeforeEach
+  void setup() {
+    mockMongoClient = mock(MongoClient.class);
+    when(mockMongoClient.createIndexWithOptions(anyString(), any(JsonObject.class), any(IndexOptions.class)))
+      .thenReturn(Future.succeededFuture());
+    when(mockMongoClient.listIndexes("items"))
+      .thenReturn(Future.succeededFuture(indexes("_id_", "owner_id")));
+  }
+
+  @Test
+  void createsIndexesAndReportsThem(Vertx vertx, VertxTestContext testContext) {
+    when(mockMongoClient.listIndexes("users"))
+      .thenReturn(Future.succeededFuture(indexes("_id_", "login_unique")));
+
+    new MongoIndexBootstrapper(vertx, mockMongoClient, new JsonObject().put("required", true))
+      .ensureIndexes()
+      .onComplete(testContext.succeeding(report -> testContext.verify(() -> {
+        ArgumentCaptor<IndexOptions> options = ArgumentCaptor.forClass(IndexOptions.class);
+        verify(mockMongoClient).createIndexWithOptions(eq("users"), eq(new JsonObject().put("login", 1)), options.capture());
+        assertTrue(options.getValue().isUnique());
+        verify(mockMongoClient).createIndexWithOptions(
+          eq("items"), eq(new JsonObject().put("owner", 1).put("_id", 1)), any(IndexOptions.class));
+        assertEquals(new JsonArray().add("_id_").add("owner_id"), report.getJsonArray("items"));
+        verify(mockMongoClient, never()).runCommand(anyString(), any());
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  void failsWhenRequiredIndexIsMissing(Vertx vertx, VertxTestContext testContext) {
+    when(mockMongoClient.createIndexWithOptions(eq("users"), any(JsonObject.class), any(IndexOptions.class)))
+      .thenReturn(Future.failedFuture("E11000 duplicate key error"));
+    when(mockMongoClient.listIndexes("users"))
+      .thenReturn(Future.succeededFuture(indexes("_id_")));
+
+    new MongoIndexBootstrapper(vertx, mockMongoClient, new JsonObject().put("required", true))
+      .ensureIndexes()
+      .onComplete(testContext.failing(cause -> testContext.verify(() -> {
+        assertTrue(cause.getMessage().contains("users.login_unique"));
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  void failsWhenLoginIndexIsMissingEvenIfNotRequired(Vertx vertx, VertxTestContext testContext) {
+    when(mockMongoClient.createIndexWithOptions(eq("users"), any(JsonObject.class), any(IndexOptions.class)))
+      .thenReturn(Future.failedFuture("E11000 duplicate key error"));
+    when(mockMongoClient.listIndexes("users"))
+      .thenReturn(Future.succeededFuture(indexes("_id_")));
+
+    new MongoIndexBootstrapper(vertx, mockMongoClient, new JsonObject().put("required", false))
+      .ensureIndexes()
+      .onComplete(testContext.failing(cause -> testContext.verify(() -> {
+        assertTrue(cause.getMessage().contains("users.login_unique"));
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  void startsWithoutOptionalIndexIfNotRequired(Vertx vertx, VertxTestContext testContext) {
+    when(mockMongoClient.listIndexes("users"))
+      .thenReturn(Future.succeededFuture(indexes("_id_", "login_unique")));
+    when(mockMongoClient.listIndexes("items"))
+      .thenReturn(Future.succeededFuture(indexes("_id_")));
+
+    new MongoIndexBootstrapper(vertx, mockMongoClient, new JsonObject().put("required", false))
+      .ensureIndexes()
+      .onComplete(testContext.succeedingThenComplete());
+  }
+
+  private static JsonArray indexes(String... names) {
+    JsonArray indexes = new JsonArray();
+    for (String name : names) {
+      indexes.add(new JsonObject().put("name", name));
+    }
+    return indexes;
+  }
+}
@@ -0,0 +1,134 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+public class EmbeddedStoreTest {
+
+  private static final String OWNER = "8f6e2a4c-0000-0000-0000-000000000001";
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void itemsAndUsersSurviveReopeningTest() throws Exception {
+    try (EmbeddedStore store = EmbeddedStore.open(config())) {
+      String id = store.items().save(item("first")).result();
+      assertEquals(24, id.length());
+      store.items().save(item("other").put("owner", "someone-else"));
+      store.users().insert(new JsonObject().put("id", "u1").put("login", "a@mail.com").put("password", "hash"));
+    }
+
+    try (EmbeddedStore store = EmbeddedStore.open(config())) {
+      List<JsonObject> items = store.items().findByOwner(OWNER).result();
+      assertEquals(1, items.size());
+      assertEquals("first", items.get(0).getString("name"));
+      assertEquals("hash", store.users().findByLogin("a@mail.com").result().getString("password"));
+      assertNull(store.users().findByLogin("b@mail.com").result());
+    }
+  }
+
+  @Test
+  public void duplicateLoginIsRejectedTest() throws Exception {
+    try (EmbeddedStore store = EmbeddedStore.open(config())) {
+      JsonObject user = new JsonObject().put("login", "a@mail.com");
+      assertTrue(store.users().insert(user).succeeded());
+      assertTrue(store.users().insert(user.copy()).cause() instanceof DuplicateLoginException);
+      store.users().insert(new JsonObject().put("login", "c@mail.com"));
+      store.users().insert(new JsonObject().put("login", "b@mail.com"));
+      assertEquals(Arrays.asList("a@mail.com", "b@mail.com"), store.users().findLogins(null, 2).result());
+      assertEquals(Arrays.asList("c@mail.com"), store.users().findLogins("b@mail.com", 2).result());
+    }
+  }
+
+  @Test
+  public void pagesFollowIdOrderTest() throws Exception {
+    try (EmbeddedStore store = EmbeddedStore.open(config())) {
+      List<JsonObject> batch = new ArrayList<>();
+      for (int i = 4; i >= 0; i--) {
+        batch.add(item("item" + i).put("_id", "id" + i));
+      }
+      assertEquals(Arrays.asList(null, null, null, null, null), store.items().insertAll(batch).result());
+
+      List<JsonObject> page = store.items().findPageByOwner(OWNER, null, 2).result();
+      assertEquals(new HashSet<>(Arrays.asList("_id", "id", "name")), page.get(0).fieldNames());
+      assertEquals("id0", page.get(0).getString("_id"));
+      assertEquals("id1", page.get(1).getString("_id"));
+      page = store.items().findPageByOwner(OWNER, "id3", 2).result();
+      assertEquals(1, page.size());
+      assertEquals("id4", page.get(0).getString("_id"));
+    }
+  }
+
+  @Test
+  public void streamHonoursPauseTest(Vertx vertx, VertxTestContext testContext) throws Exception {
+    EmbeddedStore store = EmbeddedStore.open(config());
+    for (int i = 0; i < 5; i++) {
+      store.items().save(item("item" + i));
+    }
+    List<String> names = new ArrayList<>();
+    vertx.runOnContext(v -> {
+      ReadStream<JsonObject> items = store.items().streamByOwner(OWNER, 2);
+      items.endHandler(end -> testContext.verify(() -> {
+        assertEquals(Arrays.asList("item0", "item1", "item2", "item3", "item4"), names);
+        store.close();
+        testContext.completeNow();
+      }));
+      items.handler(item -> {
+        testContext.verify(() -> assertEquals(new HashSet<>(Arrays.asList("id", "name")), item.fieldNames()));
+        names.add(item.getString("name"));
+        items.pause();
+        vertx.setTimer(1, id -> items.resume());
+      });
+    });
+  }
+
+  @Test
+  public void storeIsClosedByItsOwnerTest() throws Exception {
+    Vertx vertx = Vertx.vertx();
+    try {
+      EmbeddedStore store = EmbeddedStore.open(vertx, config().put("flush.interval.ms", 10))
+        .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+      store.items().save(item("first"));
+      store.close();
+
+      // a closed store can no longer map a new segment
+      boolean failed = false;
+      for (int i = 0; i < 100 && !failed; i++) {
+        failed = store.items().save(item("late" + i)).failed();
+      }
+      assertTrue(failed);
+      try (EmbeddedStore reopened = EmbeddedStore.open(config())) {
+        assertEquals("first", reopened.items().findByOwner(OWNER).result().get(0).getString("name"));
+      }
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  private JsonObject config() {
+    return new JsonObject().put("path", dir.toString()).put("segment.bytes", 4096);
+  }
+
+  private static JsonObject item(String name) {
+    return new JsonObject().put("id", name).put("owner", OWNER).put("name", name);
+  }
+}
@@ -0,0 +1,170 @@
+package com.vertx.vertx_server.repository;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedLogTest {
+
+  // room for two 22 byte records per segment, the rest is padding
+  private static final int SEGMENT_BYTES = 64;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void recordsAreReplayedAcrossSegmentsTest() throws Exception {
+    Path file = dir.resolve("test.log");
+    List<Long> offsets = new ArrayList<>();
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> { })) {
+      for (int i = 0; i < 10; i++) {
+        offsets.add(log.append(record(i)));
+      }
+      assertEquals(SEGMENT_BYTES, offsets.get(2));
+      assertEquals("record-0000005", log.read(offsets.get(5)).toString());
+    }
+
+    List<String> replayed = new ArrayList<>();
+    List<Long> replayedOffsets = new ArrayList<>();
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> {
+      replayed.add(record.toString());
+      replayedOffsets.add(offset);
+    })) {
+      assertEquals(10, replayed.size());
+      assertEquals("record-0000009", replayed.get(9));
+      assertEquals(offsets, replayedOffsets);
+      assertEquals(SEGMENT_BYTES * 5, log.append(record(10)));
+    }
+  }
+
+  @Test
+  public void segmentMappedAheadIsTakenByTheNextAppendTest() throws Exception {
+    Path file = dir.resolve("test.log");
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> { })) {
+      log.append(record(0));
+      log.mapAhead();
+      log.mapAhead();
+      assertEquals(SEGMENT_BYTES * 2, file.toFile().length());
+      log.append(record(1));
+      assertEquals(SEGMENT_BYTES, log.append(record(2)));
+      assertEquals(SEGMENT_BYTES * 2, file.toFile().length());
+      assertEquals("record-0000002", log.read(SEGMENT_BYTES).toString());
+    }
+
+    List<String> replayed = new ArrayList<>();
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> replayed.add(record.toString()))) {
+      assertEquals(3, replayed.size());
+      log.mapAhead();
+      assertEquals(SEGMENT_BYTES * 3, file.toFile().length());
+    }
+  }
+
+  @Test
+  public void replayStopsAtACorruptRecordTest() throws Exception {
+    Path file = dir.resolve("test.log");
+    long third;
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> { })) {
+      log.append(record(0));
+      log.append(record(1));
+      third = log.append(record(2));
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.seek(third + 10);
+      raf.write('X');
+    }
+
+    List<Buffer> replayed = new ArrayList<>();
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> replayed.add(record))) {
+      assertEquals(2, replayed.size());
+    }
+    // the torn record is gone, it cannot come back behind shorter appends
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+      byte[] tail = new byte[22];
+      raf.seek(third);
+      raf.readFully(tail);
+      assertArrayEquals(new byte[22], tail);
+    }
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> { })) {
+      assertEquals(third, log.append(record(3)));
+    }
+  }
+
+  @Test
+  public void openFailsWhenValidRecordsFollowACorruptOneTest() throws Exception {
+    Path file = dir.resolve("test.log");
+    long second;
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> { })) {
+      log.append(record(0));
+      second = log.append(record(1));
+      log.append(record(2));
+      log.append(record(3));
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.seek(second + 10);
+      raf.write('X');
+    }
+
+    IOException failure = assertThrows(IOException.class,
+      () -> MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> { }));
+    assertTrue(failure.getMessage().contains("offset " + second));
+    // nothing was overwritten
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+      raf.seek(SEGMENT_BYTES + 8);
+      byte[] record = new byte[14];
+      raf.readFully(record);
+      assertArrayEquals(record(2), record);
+    }
+  }
+
+  @Test
+  public void tailScanStopsAtAHeaderOfEmptyBytesTest() throws Exception {
+    Path file = dir.resolve("test.log");
+    long second;
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> { })) {
+      log.append(record(0));
+      second = log.append(record(1));
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.seek(second + 10);
+      raf.write('X');
+      raf.seek(SEGMENT_BYTES - 2);
+      raf.write('Y');
+    }
+
+    try (MappedLog log = MappedLog.open(file, SEGMENT_BYTES, (record, offset) -> { })) {
+      assertEquals(second, log.size());
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+      byte[] tail = new byte[22];
+      raf.seek(second);
+      raf.readFully(tail);
+      assertArrayEquals(new byte[22], tail);
+      // past the empty header, nothing was written and nothing was read
+      raf.seek(SEGMENT_BYTES - 2);
+      assertEquals('Y', raf.read());
+    }
+  }
+
+  @Test
+  public void recordLargerThanASegmentIsRejectedTest() throws Exception {
+    try (MappedLog log = MappedLog.open(dir.resolve("test.log"), SEGMENT_BYTES, (record, offset) -> { })) {
+      assertThrows(IllegalArgumentException.class, () -> log.append(new byte[SEGMENT_BYTES]));
+    }
+  }
+
+  private static byte[] record(int i) {
+    return String.format("record-%07d", i).getBytes(StandardCharsets.UTF_8);
+  }
+}
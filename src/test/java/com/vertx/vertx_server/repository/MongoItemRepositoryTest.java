@@ -0,0 +1,75 @@
+package com.vertx.vertx_server.repository;
+
+import com.vertx.vertx_server.model.Item;
+import com.vertx.vertx_server.model.Uuids;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MongoItemRepositoryTest {
+
+  private final MongoClient mongoClient = mock(MongoClient.class);
+  private final MongoItemRepository repository = new MongoItemRepository(mongoClient, null, true);
+  private final Item item = new Item(UUID.randomUUID(), UUID.randomUUID(), "NewItem");
+
+  @Test
+  public void binaryUuidsAreStoredAndQueriedTest() {
+    repository.save(item.toJson());
+
+    ArgumentCaptor<JsonObject> saved = ArgumentCaptor.forClass(JsonObject.class);
+    verify(mongoClient).save(eq("items"), saved.capture(), any());
+    assertTrue(Uuids.isBinary(saved.getValue().getValue("id")));
+    assertEquals(item.getOwner(), Uuids.fromJson(saved.getValue().getValue("owner")));
+
+    repository.findByOwner(item.getOwner().toString());
+    ArgumentCaptor<JsonObject> query = ArgumentCaptor.forClass(JsonObject.class);
+    verify(mongoClient).findWithOptions(eq("items"), query.capture(), any(FindOptions.class), any());
+    assertEquals(item.getOwner(), Uuids.fromJson(query.getValue().getValue("owner")));
+  }
+
+  @Test
+  public void pagesAndStreamsOnlyFetchListedFieldsTest() {
+    repository.findPageByOwner(item.getOwner().toString(), null, 10);
+    repository.streamByOwner(item.getOwner().toString(), 10);
+
+    ArgumentCaptor<FindOptions> page = ArgumentCaptor.forClass(FindOptions.class);
+    verify(mongoClient).findWithOptions(eq("items"), any(JsonObject.class), page.capture(), any());
+    assertEquals(new JsonObject().put("_id", 1).put("id", 1).put("name", 1), page.getValue().getFields());
+    ArgumentCaptor<FindOptions> stream = ArgumentCaptor.forClass(FindOptions.class);
+    verify(mongoClient).findBatchWithOptions(eq("items"), any(JsonObject.class), stream.capture());
+    assertEquals(new JsonObject().put("_id", 0).put("id", 1).put("name", 1), stream.getValue().getFields());
+  }
+
+  @Test
+  public void pagesAreReadBackAsStringsTest() {
+    JsonObject stored = item.toJson().put("_id", "1")
+      .put("id", Uuids.toBinary(item.getId()))
+      .put("owner", Uuids.toBinary(item.getOwner()));
+    when(mongoClient.findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any())).thenAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(Collections.singletonList(stored)));
+      return mongoClient;
+    });
+
+    List<JsonObject> page = repository.findPageByOwner(item.getOwner().toString(), null, 10).result();
+
+    assertEquals(item.toJson().put("_id", "1"), page.get(0));
+  }
+}
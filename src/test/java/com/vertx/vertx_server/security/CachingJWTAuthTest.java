@@ -0,0 +1,87 @@
+package com.vertx.vertx_server.security;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.PubSecKeyOptions;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.authentication.TokenCredentials;
+import io.vertx.ext.auth.jwt.JWTAuth;
+import io.vertx.ext.auth.jwt.JWTAuthOptions;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(VertxExtension.class)
+public class CachingJWTAuthTest {
+
+  private JWTAuth jwtAuth;
+
+  @BeforeEach
+  void setup(Vertx vertx) {
+    jwtAuth = spy(JWTAuth.create(vertx, new JWTAuthOptions()
+      .addPubSecKey(new PubSecKeyOptions()
+        .setAlgorithm("HS256")
+        .setBuffer("c2VjcmV0LWtleS1mb3ItdGVzdHM="))));
+  }
+
+  @Test
+  void repeatedTokenIsVerifiedOnce(VertxTestContext testContext) {
+    CachingJWTAuth cachingJWTAuth = new CachingJWTAuth(jwtAuth, new JsonObject());
+    String token = cachingJWTAuth.generateToken(
+      new JsonObject().put("ownerId", "eb5c7783-b3e4-4466-b281-13acb9990565"),
+      new JWTOptions().setExpiresInSeconds(60));
+
+    cachingJWTAuth.authenticate(new TokenCredentials(token))
+      .compose(first -> cachingJWTAuth.authenticate(new TokenCredentials(token))
+        .map(second -> new User[]{first, second}))
+      .onComplete(testContext.succeeding(users -> testContext.verify(() -> {
+        assertEquals("eb5c7783-b3e4-4466-b281-13acb9990565", users[1].principal().getString("ownerId"));
+        verify(jwtAuth, times(1)).authenticate(any(TokenCredentials.class));
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  void everyRequestGetsItsOwnUser(VertxTestContext testContext) {
+    CachingJWTAuth cachingJWTAuth = new CachingJWTAuth(jwtAuth, new JsonObject());
+    String token = cachingJWTAuth.generateToken(
+      new JsonObject().put("ownerId", "eb5c7783-b3e4-4466-b281-13acb9990565"),
+      new JWTOptions().setExpiresInSeconds(60));
+
+    cachingJWTAuth.authenticate(new TokenCredentials(token))
+      .compose(first -> {
+        first.principal().put("ownerId", "changed");
+        return cachingJWTAuth.authenticate(new TokenCredentials(token))
+          .compose(second -> cachingJWTAuth.authenticate(new TokenCredentials(token))
+            .map(third -> new User[]{first, second, third}));
+      })
+      .onComplete(testContext.succeeding(users -> testContext.verify(() -> {
+        assertNotSame(users[1], users[2]);
+        assertEquals("eb5c7783-b3e4-4466-b281-13acb9990565", users[1].principal().getString("ownerId"));
+        users[1].principal().put("ownerId", "changed");
+        assertEquals("eb5c7783-b3e4-4466-b281-13acb9990565", users[2].principal().getString("ownerId"));
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  void invalidTokenIsNotCached(VertxTestContext testContext) {
+    CachingJWTAuth cachingJWTAuth = new CachingJWTAuth(jwtAuth, new JsonObject());
+
+    cachingJWTAuth.authenticate(new TokenCredentials("not.a.token"))
+      .onComplete(testContext.failing(cause -> testContext.verify(() -> {
+        assertEquals(0, cachingJWTAuth.size());
+        testContext.completeNow();
+      })));
+  }
+}
@@ -0,0 +1,57 @@
+package com.vertx.vertx_server.security;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+public class CredentialHasherTest {
+
+  @Test
+  void hashAndVerifyOffEventLoop(Vertx vertx, VertxTestContext testContext) {
+    CredentialHasher hasher = new CredentialHasher(vertx, new JsonObject().put("bcrypt.log.rounds", 4));
+
+    hasher.hash("secret")
+      .compose(hashed -> hasher.verify("secret", hashed))
+      .onComplete(testContext.succeeding(matches -> testContext.verify(() -> {
+        assertTrue(matches);
+        assertEquals(2, hasher.metrics().getLong("completed"));
+        assertEquals(0, hasher.metrics().getInteger("pending"));
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  void queueIsSharedByEveryHasher(Vertx vertx, VertxTestContext testContext) {
+    JsonObject config = new JsonObject().put("queue.depth", 1).put("bcrypt.log.rounds", 4);
+    CredentialHasher first = new CredentialHasher(vertx, config);
+    CredentialHasher second = new CredentialHasher(vertx, config);
+
+    first.hash("secret");
+    second.hash("secret").onComplete(testContext.failing(cause -> testContext.verify(() -> {
+      assertInstanceOf(RejectedExecutionException.class, cause);
+      assertEquals(1, first.metrics().getLong("rejected"));
+      testContext.completeNow();
+    })));
+  }
+
+  @Test
+  void rejectsWhenQueueIsFull(Vertx vertx, VertxTestContext testContext) {
+    CredentialHasher hasher = new CredentialHasher(vertx, new JsonObject().put("queue.depth", 0));
+
+    hasher.hash("secret").onComplete(testContext.failing(cause -> testContext.verify(() -> {
+      assertInstanceOf(RejectedExecutionException.class, cause);
+      assertEquals(1, hasher.metrics().getLong("rejected"));
+      testContext.completeNow();
+    })));
+  }
+}
@@ -0,0 +1,50 @@
+package com.vertx.vertx_server.security;
+
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RateLimitHandlerTest {
+
+  private static final String HEADER = "X-Forwarded-For";
+
+  @Test
+  void clientIsThePeerWithoutHeaderTest() {
+    Function<RoutingContext, String> clientAddress = RateLimitHandler.clientAddress(null);
+
+    assertEquals("10.0.0.1", clientAddress.apply(request("203.0.113.7")));
+  }
+
+  @Test
+  void clientIsTheAddressAddedByTheProxyTest() {
+    Function<RoutingContext, String> clientAddress = RateLimitHandler.clientAddress(HEADER);
+
+    assertEquals("203.0.113.7", clientAddress.apply(request("203.0.113.7")));
+    // the first address is sent by the client and could be forged
+    assertEquals("203.0.113.7", clientAddress.apply(request("198.51.100.1, 203.0.113.7")));
+  }
+
+  @Test
+  void clientIsThePeerWhenHeaderIsMissingTest() {
+    Function<RoutingContext, String> clientAddress = RateLimitHandler.clientAddress(HEADER);
+
+    assertEquals("10.0.0.1", clientAddress.apply(request(null)));
+    assertEquals("10.0.0.1", clientAddress.apply(request(" ")));
+  }
+
+  private static RoutingContext request(String forwardedFor) {
+    HttpServerRequest request = mock(HttpServerRequest.class);
+    when(request.getHeader(HEADER)).thenReturn(forwardedFor);
+    when(request.remoteAddress()).thenReturn(SocketAddress.inetSocketAddress(40000, "10.0.0.1"));
+    RoutingContext context = mock(RoutingContext.class);
+    when(context.request()).thenReturn(request);
+    return context;
+  }
+}
@@ -0,0 +1,51 @@
+package com.vertx.vertx_server.security;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketLimiterTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private final TokenBucketLimiter limiter = new TokenBucketLimiter(new JsonObject()
+    .put("capacity", 3)
+    .put("refill.per.second", 2), now::get);
+
+  @Test
+  public void burstUpToCapacityThenRefillTest() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    }
+    long wait = limiter.tryAcquire("10.0.0.1");
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), wait);
+
+    now.addAndGet(wait);
+    assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+
+    // a bucket never holds more than its capacity
+    now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    }
+    assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+
+    JsonObject metrics = limiter.metrics();
+    assertEquals(7, metrics.getLong("allowed"));
+    assertEquals(3, metrics.getLong("rejected"));
+  }
+
+  @Test
+  public void keysHaveTheirOwnBucketTest() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("first@mail.com"));
+    }
+    assertTrue(limiter.tryAcquire("first@mail.com") > 0);
+    assertEquals(0, limiter.tryAcquire("second@mail.com"));
+  }
+}
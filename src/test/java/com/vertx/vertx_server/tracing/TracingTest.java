@@ -0,0 +1,117 @@
+package com.vertx.vertx_server.tracing;
+
+import com.vertx.vertx_server.MainVerticle;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.vertx.config.ConfigRetriever;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.JWTOptions;
+import io.vertx.ext.auth.PubSecKeyOptions;
+import io.vertx.ext.auth.jwt.JWTAuth;
+import io.vertx.ext.auth.jwt.JWTAuthOptions;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.tracing.opentelemetry.OpenTelemetryOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.vertx.vertx_server.MainVerticle.getConfigRetrieverOptions;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class TracingTest {
+
+  private static final String OWNER_ID = "eb5c7783-b3e4-4466-b281-13acb9990565";
+
+  private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+  private Vertx vertx;
+  private MongoClient mockMongoClient;
+
+  @BeforeEach
+  void setup() {
+    OpenTelemetrySdk openTelemetry = AppTracing.create(new JsonObject().put("sample.ratio", 1.0),
+      SimpleSpanProcessor.create(exporter));
+    AppTracing.install(openTelemetry);
+    vertx = Vertx.vertx(new VertxOptions().setTracingOptions(new OpenTelemetryOptions(openTelemetry)));
+
+    mockMongoClient = mock(MongoClient.class);
+    doAnswer(invocation -> {
+      Handler<AsyncResult<List<JsonObject>>> handler = invocation.getArgument(3);
+      handler.handle(Future.succeededFuture(List.of(new JsonObject().put("name", "a"), new JsonObject().put("name", "b"))));
+      return null;
+    }).when(mockMongoClient).findWithOptions(eq("items"), any(JsonObject.class), any(FindOptions.class), any());
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    AppTracing.reset();
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void listingIsTracedFromRouteToMongo() throws Throwable {
+    VertxTestContext testContext = new VertxTestContext();
+    HttpClient client = vertx.createHttpClient();
+
+    ConfigRetriever.create(vertx, getConfigRetrieverOptions()).getConfig()
+      .compose(config -> {
+        String token = JWTAuth.create(vertx, new JWTAuthOptions()
+            .addPubSecKey(new PubSecKeyOptions()
+              .setAlgorithm("HS256")
+              .setBuffer(config.getJsonObject("jwt").getString("secret"))))
+          .generateToken(new JsonObject().put("ownerId", OWNER_ID), new JWTOptions().setExpiresInSeconds(5));
+        return vertx.deployVerticle(new MainVerticle(vertx, mockMongoClient, config))
+          .compose(id -> client.request(HttpMethod.GET, 3000, "localhost", "/items"))
+          .compose(req -> req.putHeader("Authorization", "Bearer " + token).send())
+          .compose(response -> response.body().map(response.statusCode()));
+      })
+      // the server span ends once the response has been written
+      .compose(status -> Future.<Integer>future(promise -> vertx.setTimer(100, timer -> promise.complete(status))))
+      .onComplete(testContext.succeeding(status -> testContext.verify(() -> {
+        assertEquals(200, status);
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        SpanData server = find(spans, SpanKind.SERVER, null);
+        SpanData jwt = find(spans, SpanKind.INTERNAL, "jwt authenticate");
+        SpanData mongo = find(spans, SpanKind.CLIENT, "mongo find items");
+
+        assertEquals(OWNER_ID, server.getAttributes().get(AttributeKey.stringKey("app.owner_id")));
+        assertEquals(OWNER_ID, jwt.getAttributes().get(AttributeKey.stringKey("app.owner_id")));
+        assertEquals(2L, mongo.getAttributes().get(AttributeKey.longKey("db.result.count")));
+        assertEquals(server.getSpanId(), mongo.getParentSpanId());
+        assertEquals(server.getTraceId(), jwt.getTraceId());
+        testContext.completeNow();
+      })));
+
+    assertTrue(testContext.awaitCompletion(10, TimeUnit.SECONDS));
+    if (testContext.failed()) {
+      throw testContext.causeOfFailure();
+    }
+  }
+
+  private static SpanData find(List<SpanData> spans, SpanKind kind, String name) {
+    return spans.stream()
+      .filter(span -> span.getKind() == kind && (name == null || name.equals(span.getName())))
+      .findFirst()
+      .orElseThrow(() -> new AssertionError("No " + kind + " span " + name + " in " + spans));
+  }
+}
@@ -0,0 +1,47 @@
+package com.vertx.vertx_server.validation;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestValidatorTest {
+
+  @Test
+  public void registerAcceptsEmailLoginTest() {
+    assertNull(RequestValidator.REGISTER.validate(new JsonObject()
+      .put("login", "testUser@mail.com")
+      .put("password", "testPass")));
+  }
+
+  @Test
+  public void registerRejectsInvalidFieldsTest() {
+    assertEquals("login: Must be an email address.", RequestValidator.REGISTER.validate(new JsonObject()
+      .put("login", "testUser")
+      .put("password", "testPass")));
+
+    String missing = RequestValidator.REGISTER.validate(new JsonObject().put("password", "testPass"));
+    assertNotNull(missing);
+    assertTrue(missing.contains("login"), missing);
+
+    String empty = RequestValidator.REGISTER.validate(new JsonObject().put("login", "").put("password", "testPass"));
+    assertNotNull(empty);
+    assertTrue(empty.startsWith("login: "), empty);
+
+    String wrongType = RequestValidator.REGISTER.validate(new JsonObject().put("login", 1).put("password", "testPass"));
+    assertNotNull(wrongType);
+    assertTrue(wrongType.startsWith("login: "), wrongType);
+  }
+
+  @Test
+  public void itemRejectsValuesThatAreNotObjectsTest() {
+    assertNull(RequestValidator.ITEM.validate(new JsonObject().put("name", "NewItem")));
+    assertNotNull(RequestValidator.ITEM.validate(new JsonObject().putNull("name")));
+    assertNotNull(RequestValidator.ITEM.validate("NewItem"));
+    assertNotNull(RequestValidator.ITEM.validate(new JsonArray()));
+  }
+}